@@ -0,0 +1,316 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Single destination shortest paths for a batch of destinations at once.
+ * <p>
+ * The destinations are split over a {@link ForkJoinPool}. Each worker
+ * thread owns one {@link DijkstraWorkspace} and runs every destination it
+ * gets through it, so a query allocates nothing. The results go into one
+ * row-major matrix with a row per destination and a column per source
+ * vertex: all vertices by default, or a given set of sources, in which
+ * case each search stops once every source is settled.
+ * <p>
+ * No {@code edgeFrom[]} is kept per destination. {@code pathFrom} runs the
+ * search for its destination again when it is asked for, and keeps that
+ * one tree for the following calls with the same destination.
+ */
+public class BatchSDP {
+    // destinations below this many are run in one task
+    private static final int SEQUENTIAL_TARGETS = 4;
+
+    private final DijkstraEngine engine;
+    private final int[] targets;
+    // sources[c] = vertex of column c, null if the columns are all vertices
+    private final int[] sources;
+    // column[v] = column of vertex v, -1 if v is not a source
+    private final int[] column;
+    private final int columns;
+    // dist[k * columns + c] = distance from sources[c] to targets[k]
+    private final double[] dist;
+
+    // per worker workspace
+    private final ThreadLocal<DijkstraWorkspace> workspace;
+    // tree of the last destination asked for a path
+    private DijkstraWorkspace pathWorkspace;
+    private int pathTarget = -1;
+
+    /**
+     * Distances from every vertex to each destination, one worker per core.
+     *
+     * @param G       the edge-weighted digraph
+     * @param targets the destination vertices
+     * @throws IllegalArgumentException if an edge weight is negative
+     */
+    public BatchSDP(CSREdgeWeightedDigraph G, int[] targets) {
+        this(G, targets, null, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param G           the edge-weighted digraph
+     * @param targets     the destination vertices
+     * @param sources     the distinct source vertices, or {@code null} for all vertices
+     * @param parallelism the number of worker threads
+     * @throws IllegalArgumentException if an edge weight is negative, a
+     *         source is repeated, the matrix does not fit in a Java array
+     *         or {@code parallelism < 1}
+     */
+    public BatchSDP(CSREdgeWeightedDigraph G, int[] targets, int[] sources, int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive");
+        this.engine = new DijkstraEngine(G);
+        int V = G.V();
+        this.targets = targets.clone();
+        for (int u : this.targets)
+            validateVertex(u);
+
+        column = new int[V];
+        if (sources == null) {
+            this.sources = null;
+            columns = V;
+            for (int v = 0; v < V; v++)
+                column[v] = v;
+        }
+        else {
+            this.sources = sources.clone();
+            columns = sources.length;
+            for (int v = 0; v < V; v++)
+                column[v] = -1;
+            for (int c = 0; c < columns; c++) {
+                int v = sources[c];
+                validateVertex(v);
+                if (column[v] != -1)
+                    throw new IllegalArgumentException("Source " + v + " is repeated");
+                column[v] = c;
+            }
+        }
+        if ((long) targets.length * columns > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException(targets.length + " x " + columns
+                    + " distances do not fit in an array");
+        dist = new double[targets.length * columns];
+
+        workspace = ThreadLocal.withInitial(engine::newWorkspace);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new Targets(0, targets.length));
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Splits a range of destinations in half until it is small enough to run.
+     */
+    private class Targets extends RecursiveAction {
+        private final int lo;
+        private final int hi;
+
+        private Targets(int lo, int hi) {
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= SEQUENTIAL_TARGETS) {
+                DijkstraWorkspace ws = workspace.get();
+                for (int k = lo; k < hi; k++)
+                    solve(k, ws);
+            }
+            else {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Targets(lo, mid), new Targets(mid, hi));
+            }
+        }
+    }
+
+    /**
+     * Fills row {@code k} of the matrix.
+     */
+    private void solve(int k, DijkstraWorkspace ws) {
+        int row = k * columns;
+        if (sources == null) {
+            engine.solve(targets[k], ws);
+            System.arraycopy(ws.distFrom, 0, dist, row, columns);
+            return;
+        }
+
+        // stop once every source is settled
+        engine.start(targets[k], ws);
+        int left = columns;
+        while (left > 0 && !ws.pq.isEmpty()) {
+            if (column[engine.settle(ws)] != -1)
+                left--;
+        }
+        for (int c = 0; c < columns; c++)
+            dist[row + c] = ws.distFrom[sources[c]];
+    }
+
+    /**
+     * @param v the vertex needs to checked
+     * @throws IllegalArgumentException if v < 0 || v >= V
+     */
+    private void validateVertex(int v) {
+        int V = engine.graph().V();
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("Vertex " + v + " is not between 0 and " + (V - 1));
+    }
+
+    private void validateTarget(int k) {
+        if (k < 0 || k >= targets.length)
+            throw new IllegalArgumentException("Destination index " + k
+                    + " is not between 0 and " + (targets.length - 1));
+    }
+
+    private int columnOf(int v) {
+        validateVertex(v);
+        if (column[v] == -1)
+            throw new IllegalArgumentException("Vertex " + v + " is not a source");
+        return column[v];
+    }
+
+    /**
+     * @return the number of destinations, the rows of the matrix
+     */
+    public int rows() {
+        return targets.length;
+    }
+
+    /**
+     * @return the number of sources, the columns of the matrix
+     */
+    public int columns() {
+        return columns;
+    }
+
+    /**
+     * @param k the row
+     * @return the destination vertex of row {@code k}
+     */
+    public int target(int k) {
+        validateTarget(k);
+        return targets[k];
+    }
+
+    /**
+     * The distance matrix itself, not a copy: the distance from the source
+     * of column {@code c} to the destination of row {@code k} is at
+     * {@code k * columns() + c}.
+     *
+     * @return the row-major distance matrix
+     */
+    public double[] matrix() {
+        return dist;
+    }
+
+    /**
+     * Returns the length of a shortest path from {@code v} to the
+     * destination of row {@code k}.
+     *
+     * @param k the row of the destination
+     * @param v the source vertex
+     * @return Infinity if no such path
+     * @throws IllegalArgumentException if {@code v} is not a source
+     */
+    public double distFrom(int k, int v) {
+        validateTarget(k);
+        return dist[k * columns + columnOf(v)];
+    }
+
+    /**
+     * @param k the row of the destination
+     * @param v the source vertex
+     * @return {@code true} if there is a path from {@code v} to the destination of row {@code k}
+     */
+    public boolean hasPathFrom(int k, int v) {
+        return distFrom(k, v) < Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns a shortest path from {@code v} to the destination of row
+     * {@code k}, searching again for that destination unless it is the one
+     * of the previous call. Not thread-safe.
+     *
+     * @param k the row of the destination
+     * @param v the source vertex
+     * @return the edges of the path, or {@code null} if there is no path
+     */
+    public LinkedList<DirectedEdge> pathFrom(int k, int v) {
+        if (!hasPathFrom(k, v))
+            return null;
+        int u = targets[k];
+        if (pathTarget != u) {
+            if (pathWorkspace == null)
+                pathWorkspace = engine.newWorkspace();
+            engine.solve(u, pathWorkspace);
+            pathTarget = u;
+        }
+        return pathWorkspace.pathFrom(v);
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        BufferedReader br = new BufferedReader(new FileReader("dijkstra.txt"));
+        EdgeWeightedDigraph G = new EdgeWeightedDigraph(br);
+        CSREdgeWeightedDigraph csr = new CSREdgeWeightedDigraph(G);
+        int[] all = new int[G.V()];
+        for (int v = 0; v < G.V(); v++)
+            all[v] = v;
+        BatchSDP batch = new BatchSDP(csr, all);
+        boolean same = true;
+        for (int u = 0; u < G.V(); u++) {
+            DijkstraSDP sdp = new DijkstraSDP(G, u);
+            for (int v = 0; v < G.V(); v++)
+                same &= sdp.distFrom(v) == batch.distFrom(u, v);
+        }
+        System.out.println("Same distances as DijkstraSDP: " + same);
+        System.out.printf("0 to 6 (%.2f)  ", batch.distFrom(6, 0));
+        for (DirectedEdge e : batch.pathFrom(6, 0))
+            System.out.print(e + "  ");
+        System.out.println("\n");
+
+        // 2000 destinations on a 100 x 100 grid
+        int n = 100, V = n * n;
+        Random random = new Random(1);
+        EdgeWeightedDigraph grid = new EdgeWeightedDigraph(V);
+        for (int v = 0; v < V; v++) {
+            if (v % n + 1 < n) {
+                grid.addEdge(new DirectedEdge(v, v + 1, 1 + random.nextDouble()));
+                grid.addEdge(new DirectedEdge(v + 1, v, 1 + random.nextDouble()));
+            }
+            if (v + n < V) {
+                grid.addEdge(new DirectedEdge(v, v + n, 1 + random.nextDouble()));
+                grid.addEdge(new DirectedEdge(v + n, v, 1 + random.nextDouble()));
+            }
+        }
+        csr = new CSREdgeWeightedDigraph(grid);
+        int[] targets = new int[2000];
+        for (int k = 0; k < targets.length; k++)
+            targets[k] = random.nextInt(V);
+        int[] sources = new int[100];
+        for (int c = 0; c < sources.length; c++)
+            sources[c] = (n / 2 - 5 + c / 10) * n + n / 2 - 5 + c % 10;
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("V = " + V + ", " + targets.length + " destinations, " + cores + " cores");
+        long start = System.currentTimeMillis();
+        for (int u : targets)
+            new DijkstraSDP(grid, u);
+        long time = System.currentTimeMillis() - start;
+        System.out.printf("  DijkstraSDP                 %6.0f queries/s\n", 1000.0 * targets.length / time);
+        start = System.currentTimeMillis();
+        new BatchSDP(csr, targets);
+        time = System.currentTimeMillis() - start;
+        System.out.printf("  BatchSDP, all sources       %6.0f queries/s\n", 1000.0 * targets.length / time);
+        start = System.currentTimeMillis();
+        new BatchSDP(csr, targets, sources, cores);
+        time = System.currentTimeMillis() - start;
+        System.out.printf("  BatchSDP, 100 sources       %6.0f queries/s\n", 1000.0 * targets.length / time);
+    }
+}
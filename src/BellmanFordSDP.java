@@ -2,6 +2,7 @@ import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.Queue;
 
@@ -18,6 +19,9 @@ public class BellmanFordSDP {
     private DirectedEdge[] edgeFrom; 
     private Queue<Integer> queue;
     private LinkedList<DirectedEdge> cycle;
+    // mark[v] = number of the walk that last reached v in findNegativeCycle
+    private int[] mark;
+    private int walks;
 
     /**
      * @param G the edge-weighted digraph
@@ -27,6 +31,7 @@ public class BellmanFordSDP {
         distFrom = new double[G.V()];
         edgeFrom = new DirectedEdge[G.V()];
         onQueue = new boolean[G.V()];
+        mark = new int[G.V()];
         for (int v = 0; v < G.V(); v++)
             distFrom[v] = Double.POSITIVE_INFINITY;
         distFrom[s] = 0;
@@ -78,19 +83,48 @@ public class BellmanFordSDP {
     }
 
     /**
-     * By finding a cycle in predecessor graph 
+     * By finding a cycle in predecessor graph, walking the {@code edgeFrom}
+     * pointers in place. Every vertex is walked over at most once per call,
+     * so a check costs O(V) and allocates nothing unless a cycle is found.
+     * The cycle reported is the one {@link EdgeWeightedDirectedCycle} finds:
+     * the one holding the smallest vertex, starting at that vertex.
      */
-    public void findNegativeCycle() { // O(V * E)
+    public void findNegativeCycle() { // O(V)
         int V = edgeFrom.length;
-        EdgeWeightedDigraph G = new EdgeWeightedDigraph(V);
+        if (walks > Integer.MAX_VALUE - V) {
+            Arrays.fill(mark, 0);
+            walks = 0;
+        }
+        // walks numbered above first belong to this call
+        int first = walks;
+        int start = -1;
         for (int v = 0; v < V; v++) {
-            if (edgeFrom[v] != null) {
-                G.addEdge(edgeFrom[v]);
+            int walk = ++walks;
+            int x = v;
+            while (mark[x] <= first) {
+                mark[x] = walk;
+                if (edgeFrom[x] == null) break;
+                x = edgeFrom[x].to();
+            }
+            // back on this walk: x is on a cycle, find its smallest vertex
+            if (mark[x] == walk && edgeFrom[x] != null) {
+                int min = x;
+                for (int y = edgeFrom[x].to(); y != x; y = edgeFrom[y].to())
+                    min = Math.min(min, y);
+                if (start == -1 || min < start)
+                    start = min;
             }
         }
-
-        EdgeWeightedDirectedCycle finder = new EdgeWeightedDirectedCycle(G);
-        cycle = finder.cycle();
+        if (start == -1)
+            return;
+
+        cycle = new LinkedList<DirectedEdge>();
+        DirectedEdge f = edgeFrom[start];
+        while (f.to() != start) {
+            cycle.add(f);
+            f = edgeFrom[f.to()];
+        }
+        cycle.add(f);
     }
 
     /**
@@ -148,6 +182,21 @@ public class BellmanFordSDP {
         return path;
     }
 
+    /**
+     * Returns the first edge of a shortest path from vertex {@code v} to the
+     * source {@code s}, the one {@code pathFrom(v)} starts with.
+     *
+     * @param v the vertex
+     * @return the edge leaving {@code v}, {@code null} if {@code v} is the
+     *         source or there is no path
+     */
+    DirectedEdge edgeFrom(int v) {
+        validateVertex(v);
+        if (hasNegativeCycle())
+            throw new UnsupportedOperationException("Has negative cycle");
+        return edgeFrom[v];
+    }
+
     /**
      * @return a negative cycle reachable from the soruce vertex {@code s} 
      * as an {@code LinkedList} of edges, and {@code null} if there is no such cycle
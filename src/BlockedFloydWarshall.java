@@ -0,0 +1,454 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * All-pairs shortest paths for dense digraphs by a cache-blocked
+ * Floyd-Warshall over one flat row-major {@code double[]}, with the same
+ * {@code dist}/{@code hasPath}/{@code path} contract as
+ * {@link DijkstraAllPairsSP}. Negative weights are allowed; negative cycles
+ * are detected.
+ * <p>
+ * The matrix is cut into B x B tiles. For every pivot tile the diagonal
+ * tile is updated first, then the tiles in its row and column in parallel,
+ * then every remaining tile in parallel. Each tile update is a min-plus
+ * product over contiguous rows, so it stays in cache. Next to the distances
+ * a successor matrix keeps the id of the first edge of every shortest path;
+ * with zero-weight cycles its pointers can loop across tiles, and
+ * {@code path} then falls back to a Bellman-Ford tree of the source.
+ * Time O(V^3 / p), memory 12 V^2 bytes.
+ */
+public class BlockedFloydWarshall {
+    // tile size
+    private static final int B = 64;
+
+    private final int V;
+    private final int parallelism;
+    // dist[s * V + t] = length of a shortest s->t path
+    private double[] dist;
+    // first[s * V + t] = id of the first edge of that path, -1 if none
+    private int[] first;
+    // edges[i] = edge with id i
+    private DirectedEdgeD[] edges;
+    private boolean hasNegativeCycle;
+
+    /**
+     * @param G the edge-weighted digraph
+     * @throws IllegalArgumentException if V * V does not fit in a Java array
+     */
+    public BlockedFloydWarshall(EdgeWeightedDigraphD G) {
+        this(G, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param G           the edge-weighted digraph
+     * @param parallelism the number of worker threads
+     * @throws IllegalArgumentException if V * V does not fit in a Java array
+     */
+    public BlockedFloydWarshall(EdgeWeightedDigraphD G, int parallelism) {
+        this.V = G.V();
+        this.parallelism = parallelism;
+        List<DirectedEdgeD> list = new ArrayList<DirectedEdgeD>(G.E());
+        for (DirectedEdgeD e : G.edges())
+            list.add(e);
+        solve(list);
+    }
+
+    /**
+     * @param G the edge-weighted digraph
+     * @throws IllegalArgumentException if V * V does not fit in a Java array
+     */
+    public BlockedFloydWarshall(EdgeWeightedDigraph G) {
+        this(G, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param G           the edge-weighted digraph
+     * @param parallelism the number of worker threads
+     * @throws IllegalArgumentException if V * V does not fit in a Java array
+     */
+    public BlockedFloydWarshall(EdgeWeightedDigraph G, int parallelism) {
+        this.V = G.V();
+        this.parallelism = parallelism;
+        List<DirectedEdgeD> list = new ArrayList<DirectedEdgeD>(G.E());
+        for (DirectedEdge e : G.edges())
+            list.add(new DirectedEdgeD(e.from(), e.to(), e.weight()));
+        solve(list);
+    }
+
+    /**
+     * Density heuristic for choosing between this class and
+     * {@link DijkstraAllPairsSP}: V Dijkstra runs cost about
+     * V E log V heap operations, the tiled Floyd-Warshall V^3 much cheaper
+     * inner-loop steps.
+     *
+     * @param V the number of vertices
+     * @param E the number of edges
+     * @return {@code true} if Floyd-Warshall is expected to be faster
+     */
+    public static boolean preferDense(int V, int E) {
+        if (V < 2) return false;
+        double log2V = Math.log(V) / Math.log(2);
+        return 16.0 * E * log2V >= (double) V * V;
+    }
+
+    private void solve(List<DirectedEdgeD> list) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive");
+        if ((long) V * V > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("V * V distances do not fit in an array");
+
+        edges = list.toArray(new DirectedEdgeD[0]);
+        dist = new double[V * V];
+        first = new int[V * V];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        Arrays.fill(first, -1);
+        for (int v = 0; v < V; v++)
+            dist[v * V + v] = 0.0;
+        // keep the lightest of parallel edges
+        for (int i = 0; i < edges.length; i++) {
+            DirectedEdgeD e = edges[i];
+            int k = e.from() * V + e.to();
+            if (e.weight() < dist[k]) {
+                dist[k] = e.weight();
+                first[k] = i;
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            int n = (V + B - 1) / B;
+            for (int kb = 0; kb < n; kb++) {
+                // phase 1: the pivot tile
+                update(kb, kb, kb);
+
+                // phase 2: the rest of the pivot row and column
+                List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+                for (int b = 0; b < n; b++) {
+                    if (b == kb) continue;
+                    tasks.add(task(kb, b, kb));
+                    tasks.add(task(b, kb, kb));
+                }
+                pool.invokeAll(tasks);
+
+                // phase 3: every other tile
+                tasks.clear();
+                for (int ib = 0; ib < n; ib++) {
+                    if (ib == kb) continue;
+                    for (int jb = 0; jb < n; jb++) {
+                        if (jb == kb) continue;
+                        tasks.add(task(ib, jb, kb));
+                    }
+                }
+                pool.invokeAll(tasks);
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+
+        for (int v = 0; v < V; v++) {
+            if (dist[v * V + v] < 0.0)
+                hasNegativeCycle = true;
+        }
+    }
+
+    private Callable<Void> task(final int ib, final int jb, final int kb) {
+        return () -> {
+            update(ib, jb, kb);
+            return null;
+        };
+    }
+
+    /**
+     * Min-plus update of tile (ib, jb) through the pivots of tile kb.
+     */
+    private void update(int ib, int jb, int kb) {
+        int iLo = ib * B, iHi = Math.min(iLo + B, V);
+        int jLo = jb * B, jHi = Math.min(jLo + B, V);
+        int kLo = kb * B, kHi = Math.min(kLo + B, V);
+        for (int k = kLo; k < kHi; k++) {
+            int kRow = k * V;
+            for (int i = iLo; i < iHi; i++) {
+                int iRow = i * V;
+                double dik = dist[iRow + k];
+                if (dik == Double.POSITIVE_INFINITY) continue;
+                int fik = first[iRow + k];
+                for (int j = jLo; j < jHi; j++) {
+                    double d = dik + dist[kRow + j];
+                    if (d < dist[iRow + j]) {
+                        dist[iRow + j] = d;
+                        first[iRow + j] = fik;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if the digraph has a negative cycle
+     *         {@code false} otherwise
+     */
+    public boolean hasNegativeCycle() {
+        return hasNegativeCycle;
+    }
+
+    /**
+     * Returns a negative cycle, or {@code null} if there is none.
+     * <p>
+     * The successor matrix is no help here: once a negative cycle exists,
+     * its pointers are overwritten by later relaxations and the loop they
+     * close need not be negative. Instead, as {@link BellmanFordSDP} does,
+     * a Bellman-Ford with parent edges runs from a vertex whose diagonal is
+     * negative; a vertex still relaxed in pass V leads back through its
+     * parents into a negative cycle.
+     *
+     * @return the edges of a negative cycle
+     */
+    public Iterable<DirectedEdgeD> negativeCycle() {
+        for (int v = 0; v < V; v++) {
+            if (dist[v * V + v] >= 0.0) continue;
+            LinkedList<DirectedEdgeD> cycle = negativeCycleFrom(v);
+            if (cycle != null && weight(cycle) < 0.0)
+                return cycle;
+        }
+        return null;
+    }
+
+    /**
+     * Bellman-Ford from {@code s} over every edge, keeping the last edge
+     * into each vertex.
+     *
+     * @return a cycle in the parent edges, {@code null} if pass V relaxes nothing
+     */
+    private LinkedList<DirectedEdgeD> negativeCycleFrom(int s) {
+        double[] distTo = new double[V];
+        DirectedEdgeD[] edgeTo = new DirectedEdgeD[V];
+        Arrays.fill(distTo, Double.POSITIVE_INFINITY);
+        distTo[s] = 0.0;
+        int x = -1;
+        for (int pass = 1; pass <= V; pass++) {
+            x = -1;
+            for (DirectedEdgeD e : edges) {
+                int v = e.from(), w = e.to();
+                if (distTo[v] == Double.POSITIVE_INFINITY) continue;
+                if (distTo[v] + e.weight() < distTo[w]) {
+                    distTo[w] = distTo[v] + e.weight();
+                    edgeTo[w] = e;
+                    x = w;
+                }
+            }
+            if (x == -1) return null;
+        }
+        // V steps back along the parents end on the cycle
+        for (int step = 0; step < V; step++)
+            x = edgeTo[x].from();
+        LinkedList<DirectedEdgeD> cycle = new LinkedList<DirectedEdgeD>();
+        int y = x;
+        do {
+            DirectedEdgeD e = edgeTo[y];
+            cycle.addFirst(e);
+            y = e.from();
+        } while (y != x);
+        return cycle;
+    }
+
+    /**
+     * @param cycle the edges of a cycle
+     * @return the sum of their weights
+     */
+    private static double weight(Iterable<DirectedEdgeD> cycle) {
+        double sum = 0.0;
+        for (DirectedEdgeD e : cycle)
+            sum += e.weight();
+        return sum;
+    }
+
+    /**
+     * Returns a shortest path from vertex {@code s} to vertex {@code t}.
+     * @param  s the source vertex
+     * @param  t the destination vertex
+     * @return a shortest path from vertex {@code s} to vertex {@code t}
+     *         as an iterable of edges, and {@code null} if no such path
+     * @throws UnsupportedOperationException if there is a negative cost cycle
+     * @throws IllegalArgumentException unless {@code 0 <= s < V}
+     * @throws IllegalArgumentException unless {@code 0 <= t < V}
+     */
+    public Iterable<DirectedEdgeD> path(int s, int t) {
+        validateVertex(s);
+        validateVertex(t);
+        if (hasNegativeCycle())
+            throw new UnsupportedOperationException("Negative cost cycle exists");
+        if (!hasPath(s, t)) return null;
+        // follow the successors; at most V - 1 of them unless zero-weight
+        // cycles let a later tile close a loop in first[]
+        LinkedList<DirectedEdgeD> path = new LinkedList<DirectedEdgeD>();
+        for (int x = s; x != t; ) {
+            if (path.size() >= V)
+                return treePath(s, t);
+            DirectedEdgeD e = edges[first[x * V + t]];
+            path.add(e);
+            x = e.to();
+        }
+        return path;
+    }
+
+    /**
+     * Recomputes a shortest-path tree of {@code s} by Bellman-Ford to read
+     * off the path to {@code t}; only used when the successors loop. A
+     * parent edge is only replaced by a strictly shorter one, so without
+     * negative cycles the parents cannot loop.
+     */
+    private Iterable<DirectedEdgeD> treePath(int s, int t) {
+        double[] distTo = new double[V];
+        DirectedEdgeD[] edgeTo = new DirectedEdgeD[V];
+        Arrays.fill(distTo, Double.POSITIVE_INFINITY);
+        distTo[s] = 0.0;
+        for (int pass = 1; pass < V; pass++) {
+            boolean relaxed = false;
+            for (DirectedEdgeD e : edges) {
+                int v = e.from(), w = e.to();
+                if (distTo[v] == Double.POSITIVE_INFINITY) continue;
+                if (distTo[v] + e.weight() < distTo[w]) {
+                    distTo[w] = distTo[v] + e.weight();
+                    edgeTo[w] = e;
+                    relaxed = true;
+                }
+            }
+            if (!relaxed) break;
+        }
+        LinkedList<DirectedEdgeD> path = new LinkedList<DirectedEdgeD>();
+        for (DirectedEdgeD e = edgeTo[t]; e != null; e = edgeTo[e.from()])
+            path.addFirst(e);
+        return path;
+    }
+
+    /**
+     * Is there a path from the vertex {@code s} to vertex {@code t}?
+     * @param  s the source vertex
+     * @param  t the destination vertex
+     * @return {@code true} if there is a path from vertex {@code s}
+     *         to vertex {@code t}, and {@code false} otherwise
+     * @throws IllegalArgumentException unless {@code 0 <= s < V}
+     * @throws IllegalArgumentException unless {@code 0 <= t < V}
+     */
+    public boolean hasPath(int s, int t) {
+        validateVertex(s);
+        validateVertex(t);
+        return dist[s * V + t] < Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the length of a shortest path from vertex {@code s} to vertex {@code t}.
+     * @param  s the source vertex
+     * @param  t the destination vertex
+     * @return the length of a shortest path from vertex {@code s} to vertex {@code t};
+     *         {@code Double.POSITIVE_INFINITY} if no such path
+     * @throws UnsupportedOperationException if there is a negative cost cycle
+     * @throws IllegalArgumentException unless {@code 0 <= s < V}
+     * @throws IllegalArgumentException unless {@code 0 <= t < V}
+     */
+    public double dist(int s, int t) {
+        validateVertex(s);
+        validateVertex(t);
+        if (hasNegativeCycle())
+            throw new UnsupportedOperationException("Negative cost cycle exists");
+        return dist[s * V + t];
+    }
+
+    // throw an IllegalArgumentException unless {@code 0 <= v < V}
+    private void validateVertex(int v) {
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (V-1));
+    }
+
+    /**
+     * Unit tests the {@code BlockedFloydWarshall} data type.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) throws IOException {
+
+        In in = new In("dijkstra.txt");
+        EdgeWeightedDigraphD G = new EdgeWeightedDigraphD(in);
+        DijkstraAllPairsSP dijkstra = new DijkstraAllPairsSP(G);
+        BlockedFloydWarshall fw = new BlockedFloydWarshall(G);
+
+        boolean same = true;
+        for (int v = 0; v < G.V(); v++) {
+            for (int w = 0; w < G.V(); w++)
+                same &= Math.abs(dijkstra.dist(v, w) - fw.dist(v, w)) < 1E-12
+                        || dijkstra.dist(v, w) == fw.dist(v, w);
+        }
+        StdOut.println("Same distances as DijkstraAllPairsSP: " + same);
+        StdOut.printf("%d to %d (%5.2f)  ", 0, 6, fw.dist(0, 6));
+        for (DirectedEdgeD e : fw.path(0, 6))
+            StdOut.print(e + "  ");
+        StdOut.println();
+        StdOut.println();
+
+        // negative weights in bellman.txt, then a negative cycle 4->7->4
+        BufferedReader br = new BufferedReader(new FileReader("bellman.txt"));
+        EdgeWeightedDigraph N = new EdgeWeightedDigraph(br);
+        BlockedFloydWarshall negative = new BlockedFloydWarshall(N);
+        StdOut.printf("bellman.txt: negative cycle %b, 0 to 6 (%5.2f)\n",
+                negative.hasNegativeCycle(), negative.dist(0, 6));
+        N.addEdge(new DirectedEdge(7, 4, -0.50));
+        negative = new BlockedFloydWarshall(N);
+        StdOut.print("with 7->4 -0.50: ");
+        Iterable<DirectedEdgeD> cycle = negative.negativeCycle();
+        for (DirectedEdgeD e : cycle)
+            StdOut.print(e + "  ");
+        StdOut.printf("weight %5.2f\n", weight(cycle));
+        StdOut.println();
+
+        // several tiles and zero-weight cycles: every path ends at t and
+        // weighs dist(s, t)
+        Random random = new Random(1);
+        int V = 100;
+        EdgeWeightedDigraphD zero = new EdgeWeightedDigraphD(V);
+        for (int i = 0; i < 4 * V; i++)
+            zero.addEdge(new DirectedEdgeD(random.nextInt(V), random.nextInt(V), random.nextInt(3)));
+        BlockedFloydWarshall tiled = new BlockedFloydWarshall(zero, 1);
+        boolean paths = true;
+        for (int s = 0; s < V; s++) {
+            for (int t = 0; t < V; t++) {
+                if (!tiled.hasPath(s, t)) continue;
+                int x = s;
+                double length = 0.0;
+                for (DirectedEdgeD e : tiled.path(s, t)) {
+                    paths &= e.from() == x;
+                    x = e.to();
+                    length += e.weight();
+                }
+                paths &= x == t && length == tiled.dist(s, t);
+            }
+        }
+        StdOut.printf("V = %d, weights 0 to 2: paths match distances %b\n\n", V, paths);
+
+        // dense random digraph: Floyd-Warshall against V Dijkstra runs
+        V = 400;
+        EdgeWeightedDigraphD dense = new EdgeWeightedDigraphD(V);
+        for (int v = 0; v < V; v++) {
+            for (int w = 0; w < V; w++) {
+                if (v != w && random.nextInt(4) == 0)
+                    dense.addEdge(new DirectedEdgeD(v, w, random.nextDouble()));
+            }
+        }
+        long start = System.currentTimeMillis();
+        new DijkstraAllPairsSP(dense);
+        long middle = System.currentTimeMillis();
+        new BlockedFloydWarshall(dense);
+        long end = System.currentTimeMillis();
+        StdOut.printf("V = %d, E = %d, preferDense = %b\n", V, dense.E(), preferDense(V, dense.E()));
+        StdOut.printf("  DijkstraAllPairsSP   %5d ms\n", middle - start);
+        StdOut.printf("  BlockedFloydWarshall %5d ms\n", end - middle);
+    }
+}
@@ -0,0 +1,396 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A minimum spanning forest by Boruvka's algorithm, with the edge scans
+ * of every round split across a {@link ForkJoinPool}.
+ * <p>
+ * The edges are parallel arrays, and {@code comp[v]} names the component
+ * of {@code v} by one of its vertices. A round has four steps:
+ * <ul>
+ * <li>every live edge offers itself as the cheapest edge of the
+ *     components at both its ends, kept per component in an
+ *     {@link AtomicIntegerArray} by compare-and-set. Edges are ordered by
+ *     weight, then index, so all cheapest edges together form no cycle,</li>
+ * <li>the cheapest edges join their components in a {@link UF}, one pass
+ *     over the components,</li>
+ * <li>every vertex is relabelled with its new component,</li>
+ * <li>the edges now inside a component are dropped, counting the
+ *     survivors per block of edges and then copying each block to its
+ *     offset.</li>
+ * </ul>
+ * Each round at least halves the number of components that have an
+ * edge left, so there are at most log V rounds of O(E / P + V) time on
+ * P threads. The whole graph is a few arrays, which keeps the memory per
+ * edge at 20 bytes plus 8 while a round runs: graphs of 10<sup>8</sup>
+ * edges fit in a few gigabytes, given as arrays.
+ */
+public class BoruvkaMST implements MST {
+    // edges or vertices below this many are run in one task
+    private static final int SEQUENTIAL = 1 << 14;
+
+    private final int V;
+    private final int[] either;
+    private final int[] other;
+    private final double[] w;
+    private final Edge[] graphEdges;    // the edges of G, null for arrays
+    private final int[] mst;            // edge indices of the forest
+    private final double weight;
+    private final int components;
+
+    // state of the rounds
+    private int[] comp;
+    private AtomicIntegerArray cheapest;
+    private int[] live;
+    private int[] survivors;
+    private int[] blockCount;
+
+    /**
+     * Computes a minimum spanning forest of {@code G} on all processors.
+     * @param G the edge-weighted graph
+     */
+    public BoruvkaMST(EdgeWeightedGraph G) {
+        this(G, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Computes a minimum spanning forest of {@code G} on
+     * {@code parallelism} threads.
+     * @param G           the edge-weighted graph
+     * @param parallelism the number of threads
+     * @throws IllegalArgumentException if {@code parallelism < 1}
+     */
+    public BoruvkaMST(EdgeWeightedGraph G, int parallelism) {
+        V = G.V();
+        int E = G.E();
+        either = new int[E];
+        other = new int[E];
+        w = new double[E];
+        graphEdges = new Edge[E];
+        int i = 0;
+        for (Edge e : G.edges()) {
+            either[i] = e.either();
+            other[i] = e.other(either[i]);
+            w[i] = e.weight();
+            graphEdges[i++] = e;
+        }
+        // edges() leaves out self loops
+        E = i;
+        mst = solve(E, parallelism);
+        weight = sum();
+        components = V - mst.length;
+    }
+
+    /**
+     * Computes a minimum spanning forest, on {@code parallelism} threads,
+     * of the graph on vertices {@code 0} to {@code V - 1} whose edge
+     * {@code i} joins {@code either[i]} and {@code other[i]} with weight
+     * {@code weight[i]}. The arrays are kept, not copied, and must not
+     * change.
+     * @param V           the number of vertices
+     * @param either      one end of each edge
+     * @param other       the other end of each edge
+     * @param weight      the weight of each edge
+     * @param parallelism the number of threads
+     * @throws IllegalArgumentException if the arrays differ in length, a
+     *         vertex is not between 0 and {@code V - 1}, a weight is NaN,
+     *         or {@code parallelism < 1}
+     */
+    public BoruvkaMST(int V, int[] either, int[] other, double[] weight, int parallelism) {
+        if (V < 0)
+            throw new IllegalArgumentException("Number of vertices must be nonnegative");
+        if (either.length != other.length || either.length != weight.length)
+            throw new IllegalArgumentException("Edge arrays differ in length");
+        this.V = V;
+        this.either = either;
+        this.other = other;
+        this.w = weight;
+        this.graphEdges = null;
+        mst = solve(either.length, parallelism);
+        this.weight = sum();
+        components = V - mst.length;
+    }
+
+    private double sum() {
+        double total = 0.0;
+        for (int i : mst)
+            total += w[i];
+        return total;
+    }
+
+    /**
+     * Runs the rounds over edges {@code 0} to {@code E - 1}.
+     *
+     * @return the indices of the forest edges
+     */
+    private int[] solve(int E, int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive");
+        comp = new int[V];
+        cheapest = new AtomicIntegerArray(V);
+        live = new int[E];
+        survivors = new int[E];
+        blockCount = new int[(E + SEQUENTIAL - 1) / SEQUENTIAL + 1];
+        UF uf = new UF(V);
+        int[] forest = new int[Math.max(0, V - 1)];
+        int trees = 0;
+        // the components that still have an edge
+        int[] roots = new int[V];
+        int n = V;
+        for (int v = 0; v < V; v++) {
+            comp[v] = v;
+            roots[v] = v;
+            cheapest.set(v, -1);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            int m = E;
+            for (int i = 0; i < E; i++)
+                live[i] = i;
+            pool.invoke(new Pass(this, Pass.VALIDATE, 0, m));
+            m = filter(pool, m);
+
+            while (m > 0) {
+                pool.invoke(new Pass(this, Pass.CHEAPEST, 0, m));
+
+                // join along the cheapest edges; the second end to offer
+                // an edge finds it joined already
+                for (int k = 0; k < n; k++) {
+                    int e = cheapest.get(roots[k]);
+                    if (e != -1 && uf.find(either[e]) != uf.find(other[e])) {
+                        uf.union(either[e], other[e]);
+                        forest[trees++] = e;
+                    }
+                }
+                int n2 = 0;
+                for (int k = 0; k < n; k++) {
+                    int c = roots[k];
+                    comp[c] = uf.find(c);
+                    if (comp[c] == c && cheapest.get(c) != -1)
+                        roots[n2++] = c;
+                    cheapest.set(c, -1);
+                }
+                n = n2;
+
+                pool.invoke(new Pass(this, Pass.RELABEL, 0, V));
+                m = filter(pool, m);
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+        comp = null;
+        cheapest = null;
+        live = survivors = blockCount = null;
+        int[] result = new int[trees];
+        System.arraycopy(forest, 0, result, 0, trees);
+        return result;
+    }
+
+    /**
+     * Keeps the live edges between two components, in order.
+     *
+     * @return the number kept
+     */
+    private int filter(ForkJoinPool pool, int m) {
+        pool.invoke(new Pass(this, Pass.COUNT, 0, m));
+        int blocks = (m + SEQUENTIAL - 1) / SEQUENTIAL;
+        int total = 0;
+        for (int b = 0; b < blocks; b++) {
+            int count = blockCount[b];
+            blockCount[b] = total;
+            total += count;
+        }
+        pool.invoke(new Pass(this, Pass.COPY, 0, m));
+        int[] swap = live;
+        live = survivors;
+        survivors = swap;
+        return total;
+    }
+
+    /**
+     * Edges {@code i < e} come first among equal weights.
+     */
+    private boolean lighter(int e, int f) {
+        return w[e] < w[f] || (w[e] == w[f] && e < f);
+    }
+
+    private void offer(int c, int e) {
+        while (true) {
+            int f = cheapest.get(c);
+            if (f != -1 && !lighter(e, f))
+                return;
+            if (cheapest.compareAndSet(c, f, e))
+                return;
+        }
+    }
+
+    /**
+     * Runs {@code step} over live edges, or vertices, {@code lo} to
+     * {@code hi - 1}, within one block of {@code SEQUENTIAL}.
+     */
+    private void step(int step, int lo, int hi) {
+        switch (step) {
+            case Pass.VALIDATE:
+                for (int k = lo; k < hi; k++) {
+                    int e = live[k];
+                    validateVertex(either[e]);
+                    validateVertex(other[e]);
+                    if (Double.isNaN(w[e]))
+                        throw new IllegalArgumentException("Weight is NaN");
+                }
+                break;
+            case Pass.CHEAPEST:
+                for (int k = lo; k < hi; k++) {
+                    int e = live[k];
+                    offer(comp[either[e]], e);
+                    offer(comp[other[e]], e);
+                }
+                break;
+            case Pass.RELABEL:
+                // comp[c] of every old component c is its new one already
+                for (int v = lo; v < hi; v++)
+                    comp[v] = comp[comp[v]];
+                break;
+            case Pass.COUNT: {
+                int count = 0;
+                for (int k = lo; k < hi; k++) {
+                    int e = live[k];
+                    if (comp[either[e]] != comp[other[e]])
+                        count++;
+                }
+                blockCount[lo / SEQUENTIAL] = count;
+                break;
+            }
+            case Pass.COPY: {
+                int at = blockCount[lo / SEQUENTIAL];
+                for (int k = lo; k < hi; k++) {
+                    int e = live[k];
+                    if (comp[either[e]] != comp[other[e]])
+                        survivors[at++] = e;
+                }
+                break;
+            }
+        }
+    }
+
+    /**
+     * One step of a round over a range, split into blocks of
+     * {@code SEQUENTIAL} that line up with {@code blockCount}.
+     */
+    private static class Pass extends RecursiveAction {
+        private static final int VALIDATE = 0;
+        private static final int CHEAPEST = 1;
+        private static final int RELABEL = 2;
+        private static final int COUNT = 3;
+        private static final int COPY = 4;
+
+        private final BoruvkaMST mst;
+        private final int step;
+        private final int lo;
+        private final int hi;
+
+        private Pass(BoruvkaMST mst, int step, int lo, int hi) {
+            this.mst = mst;
+            this.step = step;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= SEQUENTIAL) {
+                mst.step(step, lo, hi);
+            }
+            else {
+                // split on a block boundary
+                int blocks = (hi - lo + SEQUENTIAL - 1) / SEQUENTIAL;
+                int mid = lo + blocks / 2 * SEQUENTIAL;
+                invokeAll(new Pass(mst, step, lo, mid), new Pass(mst, step, mid, hi));
+            }
+        }
+    }
+
+    private void validateVertex(int v) {
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("Vertex " + v + " is not between 0 and " + (V - 1));
+    }
+
+    /**
+     * @return the edges of the minimum spanning forest, those of the graph
+     *         it was computed from, or new edges when it was given arrays
+     */
+    public Iterable<Edge> edges() {
+        List<Edge> list = new ArrayList<Edge>(mst.length);
+        for (int i : mst)
+            list.add(graphEdges != null ? graphEdges[i] : new Edge(either[i], other[i], w[i]));
+        return list;
+    }
+
+    /**
+     * @return the sum of the edge weights of the minimum spanning forest
+     */
+    public double weight() {
+        return weight;
+    }
+
+    /**
+     * @return the number of trees in the minimum spanning forest
+     */
+    public int components() {
+        return components;
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        BufferedReader br = new BufferedReader(new FileReader("prim.txt"));
+        EdgeWeightedGraph G = new EdgeWeightedGraph(br);
+        MST boruvka = new BoruvkaMST(G);
+        System.out.println("Minimum spanning tree: ");
+        for (Edge e : boruvka.edges())
+            System.out.println("  " + e);
+        System.out.printf("Weight %.2f, PrimMST %.2f\n\n", boruvka.weight(), new PrimMST(G).weight());
+
+        // a random graph in two halves with no edge between them
+        Random random = new Random(1);
+        int V = 200000, E = 2000000;
+        G = new EdgeWeightedGraph(V);
+        for (int i = 0; i < E; i++) {
+            int half = random.nextInt(2) * V / 2;
+            G.addEdge(new Edge(half + random.nextInt(V / 2), half + random.nextInt(V / 2), random.nextDouble()));
+        }
+        System.out.println(V + " vertices, " + E + " edges");
+        for (MST.Engine engine : MST.Engine.values()) {
+            long start = System.currentTimeMillis();
+            MST forest = MST.of(engine, G);
+            System.out.printf("  %-8s weight %.6f, %d trees %6d ms\n", engine, forest.weight(),
+                    forest.components(), System.currentTimeMillis() - start);
+        }
+
+        // as arrays, the way large similarity graphs are given
+        V = 1000000;
+        E = 10000000;
+        int[] either = new int[E], other = new int[E];
+        double[] weight = new double[E];
+        for (int i = 0; i < E; i++) {
+            either[i] = random.nextInt(V);
+            other[i] = random.nextInt(V);
+            weight[i] = random.nextDouble();
+        }
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int p = 1; p <= processors; p *= 2) {
+            long start = System.currentTimeMillis();
+            BoruvkaMST forest = new BoruvkaMST(V, either, other, weight, p);
+            System.out.printf("%d vertices, %d edges as arrays, %d threads: weight %.6f, %d trees %6d ms\n",
+                    V, E, p, forest.weight(), forest.components(), System.currentTimeMillis() - start);
+        }
+    }
+}
@@ -0,0 +1,476 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.LinkedList;
+
+/**
+ * Immutable edge-weighted digraph stored in compressed sparse row (CSR) form.
+ * <p>
+ * Like {@link EdgeWeightedDigraph}, the adjacency of vertex {@code v} is the
+ * list of edges entering {@code v} (grouped by {@code to()}), so the
+ * single-destination shortest-path classes can walk it unchanged. Edge
+ * {@code i} is identified by its position in the row arrays: the edges
+ * entering {@code v} are the ids {@code begin(v) .. end(v) - 1}, in the
+ * same order as {@code G.adj(v)}.
+ */
+public class CSREdgeWeightedDigraph {
+    // number of vertices
+    private final int V;
+    // number of edges
+    private final int E;
+    // offsets[v] = id of the first edge entering v, offsets[V] = E
+    private final int[] offsets;
+    // targets[i] = tail vertex (from) of edge i
+    private final int[] targets;
+    // weights[i] = weight of edge i
+    private final double[] weights;
+    // outOffsets[v] .. outOffsets[v + 1] - 1 index the edges leaving v
+    private int[] outOffsets;
+    // outEdges[k] = id of the k-th edge in from() order
+    private int[] outEdges;
+    // outHeads[k] = head vertex (to) of edge outEdges[k]
+    private int[] outHeads;
+
+    /**
+     * Packs the edges of {@code G} into CSR arrays.
+     *
+     * @param G the edge weighted digraph
+     */
+    public CSREdgeWeightedDigraph(EdgeWeightedDigraph G) {
+        this.V = G.V();
+        this.E = G.E();
+        offsets = new int[V + 1];
+        targets = new int[E];
+        weights = new double[E];
+
+        int i = 0;
+        for (int v = 0; v < V; v++) {
+            offsets[v] = i;
+            for (DirectedEdge e : G.adj(v)) {
+                targets[i] = e.from();
+                weights[i] = e.weight();
+                i++;
+            }
+        }
+        offsets[V] = i;
+        indexOutEdges();
+    }
+
+    /**
+     * Reads the same format as {@link EdgeWeightedDigraph#EdgeWeightedDigraph(BufferedReader)}
+     * without creating a {@code DirectedEdge} per line.
+     *
+     * @param br the input stream
+     * @throws IOException an exception occurs while reading data
+     */
+    public CSREdgeWeightedDigraph(BufferedReader br) throws IOException {
+        this.V = Integer.parseInt(br.readLine());
+        if (V < 0)
+            throw new IllegalArgumentException("Number of vertices is negative");
+        this.E = Integer.parseInt(br.readLine());
+        if (E < 0)
+            throw new IllegalArgumentException("Number of edges is negative");
+
+        int[] from = new int[E];
+        int[] to = new int[E];
+        double[] weight = new double[E];
+        for (int i = 0; i < E; i++) {
+            String[] s = br.readLine().split(" ");
+            from[i] = Integer.parseInt(s[0]);
+            to[i] = Integer.parseInt(s[1]);
+            validateVertex(from[i]);
+            validateVertex(to[i]);
+            weight[i] = Double.parseDouble(s[2]);
+        }
+
+        offsets = new int[V + 1];
+        targets = new int[E];
+        weights = new double[E];
+        pack(from, to, weight, E);
+        indexOutEdges();
+    }
+
+    /**
+     * Reads the same format straight from the bytes of a channel, without
+     * a string per line.
+     *
+     * @param channel the input channel
+     * @throws IOException an exception occurs while reading data
+     */
+    public CSREdgeWeightedDigraph(ReadableByteChannel channel) throws IOException {
+        EdgeListReader in = new EdgeListReader(channel);
+        this.V = in.readInt();
+        if (V < 0)
+            throw new IllegalArgumentException("Number of vertices is negative");
+        this.E = in.readInt();
+        if (E < 0)
+            throw new IllegalArgumentException("Number of edges is negative");
+
+        int[] from = new int[E];
+        int[] to = new int[E];
+        double[] weight = new double[E];
+        for (int i = 0; i < E; i++) {
+            from[i] = in.readInt();
+            to[i] = in.readInt();
+            validateVertex(from[i]);
+            validateVertex(to[i]);
+            weight[i] = in.readDouble();
+        }
+
+        offsets = new int[V + 1];
+        targets = new int[E];
+        weights = new double[E];
+        pack(from, to, weight, E);
+        indexOutEdges();
+    }
+
+    /**
+     * Builds the graph from parallel edge arrays (edge {@code i} is
+     * {@code from[i] -> to[i]}). The arrays are not kept.
+     *
+     * @param V the number of vertices
+     * @param from tail vertex of each edge
+     * @param to head vertex of each edge
+     * @param weight weight of each edge
+     * @param E the number of edges used from the arrays
+     */
+    CSREdgeWeightedDigraph(int V, int[] from, int[] to, double[] weight, int E) {
+        if (V < 0)
+            throw new IllegalArgumentException("Number of vertices is negative");
+        this.V = V;
+        this.E = E;
+        offsets = new int[V + 1];
+        targets = new int[E];
+        weights = new double[E];
+        for (int i = 0; i < E; i++) {
+            validateVertex(from[i]);
+            validateVertex(to[i]);
+        }
+        pack(from, to, weight, E);
+        indexOutEdges();
+    }
+
+    /**
+     * Wraps CSR arrays that are already built; nothing is copied.
+     */
+    CSREdgeWeightedDigraph(int V, int[] offsets, int[] targets, double[] weights) {
+        this.V = V;
+        this.E = targets.length;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        indexOutEdges();
+    }
+
+    /**
+     * Stable counting sort of the edges by head vertex, so edges entering
+     * the same vertex keep their input order.
+     */
+    private void pack(int[] from, int[] to, double[] weight, int n) {
+        for (int i = 0; i < n; i++)
+            offsets[to[i] + 1]++;
+        for (int v = 0; v < V; v++)
+            offsets[v + 1] += offsets[v];
+
+        int[] next = new int[V];
+        System.arraycopy(offsets, 0, next, 0, V);
+        for (int i = 0; i < n; i++) {
+            int k = next[to[i]]++;
+            targets[k] = from[i];
+            weights[k] = weight[i];
+        }
+    }
+
+    /**
+     * Builds the forward index: the edges of every vertex v with
+     * {@code from() == v}, in increasing id order.
+     */
+    private void indexOutEdges() {
+        outOffsets = new int[V + 1];
+        outEdges = new int[E];
+        outHeads = new int[E];
+        for (int i = 0; i < E; i++)
+            outOffsets[targets[i] + 1]++;
+        for (int v = 0; v < V; v++)
+            outOffsets[v + 1] += outOffsets[v];
+
+        int[] next = new int[V];
+        System.arraycopy(outOffsets, 0, next, 0, V);
+        for (int w = 0; w < V; w++) {
+            for (int i = offsets[w]; i < offsets[w + 1]; i++) {
+                int k = next[targets[i]]++;
+                outEdges[k] = i;
+                outHeads[k] = w;
+            }
+        }
+    }
+
+    /**
+     * @return the number of vertices in this digraph
+     */
+    public int V() {
+        return V;
+    }
+
+    /**
+     * @return the number of edges in this digraph
+     */
+    public int E() {
+        return E;
+    }
+
+    /**
+     * @param v the vertex
+     * @return out degree of vertex v
+     */
+    public int outdegree(int v) {
+        validateVertex(v);
+        return outOffsets[v + 1] - outOffsets[v];
+    }
+
+    /**
+     * @param v the vertex
+     * @return in degree of vertex v
+     */
+    public int indegree(int v) {
+        validateVertex(v);
+        return offsets[v + 1] - offsets[v];
+    }
+
+    /**
+     * @param v the vertex
+     */
+    private void validateVertex(int v) {
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException(v + " is not between 0 and " + (V - 1));
+    }
+
+    /**
+     * @param i the edge id
+     */
+    private void validateEdge(int i) {
+        if (i < 0 || i >= E)
+            throw new IllegalArgumentException("Edge " + i + " is not between 0 and " + (E - 1));
+    }
+
+    /**
+     * @param v the vertex
+     * @return id of the first edge entering {@code v}
+     */
+    public int begin(int v) {
+        validateVertex(v);
+        return offsets[v];
+    }
+
+    /**
+     * @param v the vertex
+     * @return one past the id of the last edge entering {@code v}
+     */
+    public int end(int v) {
+        validateVertex(v);
+        return offsets[v + 1];
+    }
+
+    /**
+     * @param v the vertex
+     * @return first position of {@code v} in the forward index
+     */
+    public int outBegin(int v) {
+        validateVertex(v);
+        return outOffsets[v];
+    }
+
+    /**
+     * @param v the vertex
+     * @return one past the last position of {@code v} in the forward index
+     */
+    public int outEnd(int v) {
+        validateVertex(v);
+        return outOffsets[v + 1];
+    }
+
+    /**
+     * @param k a position in the forward index
+     * @return id of the edge at position {@code k}
+     */
+    public int outEdge(int k) {
+        return outEdges[k];
+    }
+
+    /**
+     * @param k a position in the forward index
+     * @return head vertex of the edge at position {@code k}
+     */
+    public int outHead(int k) {
+        return outHeads[k];
+    }
+
+    /**
+     * @param i the edge id
+     * @return the tail vertex of edge {@code i}
+     */
+    public int from(int i) {
+        return targets[i];
+    }
+
+    /**
+     * Head of an edge, found by binary search over the offsets.
+     *
+     * @param i the edge id
+     * @return the head vertex of edge {@code i}
+     */
+    public int to(int i) {
+        validateEdge(i);
+        int lo = 0, hi = V - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (offsets[mid] <= i) lo = mid;
+            else                   hi = mid - 1;
+        }
+        return lo;
+    }
+
+    /**
+     * @param i the edge id
+     * @return the weight of edge {@code i}
+     */
+    public double weight(int i) {
+        return weights[i];
+    }
+
+    /**
+     * @param i the edge id
+     * @return a new {@code DirectedEdge} equal to edge {@code i}
+     */
+    public DirectedEdge edge(int i) {
+        return new DirectedEdge(from(i), to(i), weight(i));
+    }
+
+    /**
+     * Materialises the edges entering {@code v}; use a {@link EdgeCursor}
+     * in inner loops instead.
+     *
+     * @param v the vertex
+     * @return linked list of edges entering vertex v
+     */
+    public LinkedList<DirectedEdge> adj(int v) {
+        validateVertex(v);
+        LinkedList<DirectedEdge> list = new LinkedList<>();
+        for (int i = offsets[v]; i < offsets[v + 1]; i++)
+            list.add(new DirectedEdge(targets[i], v, weights[i]));
+        return list;
+    }
+
+    /**
+     * @return all edges in this digraph, as an Linked list
+     */
+    public LinkedList<DirectedEdge> edges() {
+        LinkedList<DirectedEdge> list = new LinkedList<>();
+        for (int v = 0; v < V; v++)
+            list.addAll(adj(v));
+        return list;
+    }
+
+    /**
+     * @return a new cursor over the edges of this digraph
+     */
+    public EdgeCursor cursor() {
+        return new EdgeCursor();
+    }
+
+    /**
+     * Reusable cursor over the edges entering one vertex. Create one per
+     * thread and {@link #reset(int)} it for every vertex; it never allocates.
+     * <pre>
+     * for (c.reset(v); c.next(); )
+     *     relax(c.from(), c.weight());
+     * </pre>
+     */
+    public class EdgeCursor {
+        private int i;
+        private int end;
+
+        private EdgeCursor() {
+            i = end = 0;
+        }
+
+        /**
+         * Positions the cursor before the first edge entering {@code v}.
+         *
+         * @param v the vertex
+         * @return this cursor
+         */
+        public EdgeCursor reset(int v) {
+            validateVertex(v);
+            i = offsets[v] - 1;
+            end = offsets[v + 1];
+            return this;
+        }
+
+        /**
+         * @return {@code true} if the cursor moved to another edge
+         */
+        public boolean next() {
+            return ++i < end;
+        }
+
+        /**
+         * @return id of the current edge
+         */
+        public int id() {
+            return i;
+        }
+
+        /**
+         * @return tail vertex of the current edge
+         */
+        public int from() {
+            return targets[i];
+        }
+
+        /**
+         * @return weight of the current edge
+         */
+        public double weight() {
+            return weights[i];
+        }
+    }
+
+    /**
+     * @return the number of vertices V, followed by the number of
+     *         edges E, followed by the V adjacency lists of edges
+     */
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        String stmp = "G(V = " + V + ", E = " + E + ")\n";
+        s.append(stmp);
+        s.append(V + " " + E + "\n");
+        for (int v = 0; v < V; v++) {
+            s.append(v + ": ");
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                s.append(new DirectedEdge(targets[i], v, weights[i]) + " ");
+            }
+            s.append("\n");
+        }
+        return s.toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        BufferedReader br = new BufferedReader(new FileReader("dijkstra.txt"));
+        CSREdgeWeightedDigraph G = new CSREdgeWeightedDigraph(br);
+        System.out.println(G);
+
+        br = new BufferedReader(new FileReader("dijkstra.txt"));
+        CSREdgeWeightedDigraph H = new CSREdgeWeightedDigraph(new EdgeWeightedDigraph(br));
+        System.out.println("Same as EdgeWeightedDigraph: " + G.toString().equals(H.toString()));
+
+        // walk the edges entering vertex 6 without allocating
+        EdgeCursor c = G.cursor();
+        System.out.print("Edges entering 6: ");
+        for (c.reset(6); c.next(); )
+            System.out.printf("%d->6 %.2f  ", c.from(), c.weight());
+        System.out.println();
+    }
+}
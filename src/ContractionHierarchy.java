@@ -0,0 +1,427 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Contraction hierarchy of an edge-weighted digraph: the preprocessing for
+ * {@link ContractionHierarchySP}.
+ * <p>
+ * Vertices are contracted one at a time, cheapest first. Contracting
+ * {@code v} removes it from the remaining graph and adds a shortcut
+ * {@code x->y} of weight {@code w(x->v) + w(v->y)} for each pair of
+ * neighbours unless a witness search finds a path from {@code x} to
+ * {@code y} around {@code v} that is no longer. The cost of a vertex is
+ * the number of shortcuts its contraction would add minus the number of
+ * edges it removes, plus the number of its neighbours already contracted;
+ * costs are refreshed lazily when a vertex reaches the front of the queue.
+ * A vertex's rank is its position in the contraction order.
+ * <p>
+ * The overlay is the original edges plus the shortcuts, each shortcut
+ * remembering the two arcs it replaces. It is split into the arcs that go
+ * up in rank, searched forward from a source, and the arcs that come down,
+ * searched backward from a destination. {@link #write} and {@link #read}
+ * store it in a binary file so the preprocessing runs once. Edge weights
+ * must be non-negative.
+ */
+public class ContractionHierarchy {
+    private static final int MAGIC = 0x43484f56; // "CHOV"
+    private static final int VERSION = 1;
+    // a witness search gives up after settling this many vertices when
+    // estimating the cost of a vertex, and when contracting it
+    private static final int ESTIMATE_SETTLED = 30;
+    private static final int CONTRACT_SETTLED = 1000;
+
+    final int V;
+    // number of original edges; arcs 0 .. E-1 are the edges, in G.edges() order
+    final int E;
+    // rank[v] = position of v in the contraction order
+    final int[] rank;
+    // arc a goes from tail[a] to head[a]; a shortcut replaces child1[a]
+    // followed by child2[a], an original edge has child1[a] == -1
+    int[] tail;
+    int[] head;
+    double[] weight;
+    int[] child1;
+    int[] child2;
+    int arcs;
+    // original edges, arc a < E is edges[a]
+    final DirectedEdge[] edges;
+
+    // upward arcs leaving v: upArc[upOff[v] .. upOff[v + 1])
+    int[] upOff;
+    int[] upArc;
+    // arcs entering v from a higher rank: downArc[downOff[v] .. downOff[v + 1])
+    int[] downOff;
+    int[] downArc;
+
+    /**
+     * Contracts every vertex of {@code G}.
+     *
+     * @param G the edge-weighted digraph
+     * @throws IllegalArgumentException if an edge weight is negative
+     */
+    public ContractionHierarchy(EdgeWeightedDigraph G) {
+        this.V = G.V();
+        this.E = G.E();
+        rank = new int[V];
+        edges = new DirectedEdge[E];
+        int capacity = Math.max(16, 2 * E);
+        tail = new int[capacity];
+        head = new int[capacity];
+        weight = new double[capacity];
+        child1 = new int[capacity];
+        child2 = new int[capacity];
+        for (DirectedEdge e : G.edges()) {
+            if (e.weight() < 0)
+                throw new IllegalArgumentException("edge " + e + " has negative weight");
+            edges[arcs] = e;
+            addArc(e.from(), e.to(), e.weight(), -1, -1);
+        }
+        new Contraction().run();
+        index();
+    }
+
+    private ContractionHierarchy(int V, int E, int arcs) {
+        this.V = V;
+        this.E = E;
+        this.arcs = arcs;
+        rank = new int[V];
+        edges = new DirectedEdge[E];
+        tail = new int[arcs];
+        head = new int[arcs];
+        weight = new double[arcs];
+        child1 = new int[arcs];
+        child2 = new int[arcs];
+    }
+
+    private int addArc(int v, int w, double d, int a, int b) {
+        if (arcs == tail.length) {
+            int n = 2 * arcs;
+            tail = Arrays.copyOf(tail, n);
+            head = Arrays.copyOf(head, n);
+            weight = Arrays.copyOf(weight, n);
+            child1 = Arrays.copyOf(child1, n);
+            child2 = Arrays.copyOf(child2, n);
+        }
+        tail[arcs] = v;
+        head[arcs] = w;
+        weight[arcs] = d;
+        child1[arcs] = a;
+        child2[arcs] = b;
+        return arcs++;
+    }
+
+    /**
+     * Splits the arcs into the upward and downward search graphs.
+     */
+    private void index() {
+        upOff = new int[V + 1];
+        downOff = new int[V + 1];
+        for (int a = 0; a < arcs; a++) {
+            if (rank[head[a]] > rank[tail[a]]) upOff[tail[a] + 1]++;
+            else                               downOff[head[a] + 1]++;
+        }
+        for (int v = 0; v < V; v++) {
+            upOff[v + 1] += upOff[v];
+            downOff[v + 1] += downOff[v];
+        }
+        upArc = new int[upOff[V]];
+        downArc = new int[downOff[V]];
+        int[] up = Arrays.copyOf(upOff, V);
+        int[] down = Arrays.copyOf(downOff, V);
+        for (int a = 0; a < arcs; a++) {
+            if (rank[head[a]] > rank[tail[a]]) upArc[up[tail[a]]++] = a;
+            else                               downArc[down[head[a]]++] = a;
+        }
+    }
+
+    /**
+     * @return the number of vertices
+     */
+    public int V() {
+        return V;
+    }
+
+    /**
+     * @return the number of original edges
+     */
+    public int E() {
+        return E;
+    }
+
+    /**
+     * @return the number of shortcuts added by the contraction
+     */
+    public int shortcuts() {
+        return arcs - E;
+    }
+
+    /**
+     * @param v the vertex
+     * @return the position of {@code v} in the contraction order
+     */
+    public int rank(int v) {
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("Vertex " + v + " is not between 0 and " + (V - 1));
+        return rank[v];
+    }
+
+    /**
+     * The state of the contraction, dropped once the ranks are known.
+     */
+    private class Contraction {
+        // arcs leaving and entering each vertex, contracted ends included
+        private final IntList[] out = new IntList[V];
+        private final IntList[] in = new IntList[V];
+        private final boolean[] contracted = new boolean[V];
+        // number of contracted neighbours
+        private final int[] deleted = new int[V];
+        // length of the longest chain of contracted vertices below v
+        private final int[] level = new int[V];
+        private final IndexMinDoublePQ order = new IndexMinDoublePQ(Math.max(1, V));
+
+        // witness search scratch, reset through the touched list
+        private final double[] dist = new double[V];
+        private final IntList touched = new IntList();
+        private final IndexMinDoublePQ pq = new IndexMinDoublePQ(Math.max(1, V));
+        // shortcuts found by the last call to contract
+        private final IntList viaIn = new IntList();
+        private final IntList viaOut = new IntList();
+
+        private Contraction() {
+            for (int v = 0; v < V; v++) {
+                out[v] = new IntList();
+                in[v] = new IntList();
+                dist[v] = Double.POSITIVE_INFINITY;
+            }
+            for (int a = 0; a < arcs; a++) {
+                out[tail[a]].add(a);
+                in[head[a]].add(a);
+            }
+        }
+
+        private void run() {
+            for (int v = 0; v < V; v++)
+                order.insert(v, priority(v));
+            int next = 0;
+            while (!order.isEmpty()) {
+                int v = order.delMin();
+                // lazy update: contract v only if it is still the cheapest
+                double p = priority(v);
+                if (!order.isEmpty() && p > order.minKey()) {
+                    order.insert(v, p);
+                    continue;
+                }
+                contract(v, CONTRACT_SETTLED);
+                for (int k = 0; k < viaIn.n; k++) {
+                    int a = viaIn.a[k], b = viaOut.a[k];
+                    int s = addArc(tail[a], head[b], weight[a] + weight[b], a, b);
+                    out[tail[s]].add(s);
+                    in[head[s]].add(s);
+                }
+                contracted[v] = true;
+                rank[v] = next++;
+                for (int k = 0; k < out[v].n; k++)
+                    neighbourContracted(v, head[out[v].a[k]]);
+                for (int k = 0; k < in[v].n; k++)
+                    neighbourContracted(v, tail[in[v].a[k]]);
+            }
+        }
+
+        /**
+         * Counts {@code v} as a contracted neighbour of {@code w} and
+         * refreshes the cost of {@code w}.
+         */
+        private void neighbourContracted(int v, int w) {
+            if (contracted[w] || !order.contains(w))
+                return;
+            deleted[w]++;
+            level[w] = Math.max(level[w], level[v] + 1);
+            order.changeKey(w, priority(w));
+        }
+
+        /**
+         * Edge difference plus contracted neighbours plus level.
+         */
+        private double priority(int v) {
+            contract(v, ESTIMATE_SETTLED);
+            int removed = 0;
+            for (int k = 0; k < out[v].n; k++)
+                if (!contracted[head[out[v].a[k]]]) removed++;
+            for (int k = 0; k < in[v].n; k++)
+                if (!contracted[tail[in[v].a[k]]]) removed++;
+            return 2 * (viaIn.n - removed) + deleted[v] + level[v];
+        }
+
+        /**
+         * Finds the shortcuts needed to contract {@code v} into
+         * {@code viaIn}/{@code viaOut} without adding them.
+         */
+        private void contract(int v, int maxSettled) {
+            viaIn.clear();
+            viaOut.clear();
+            double maxOut = 0.0;
+            for (int k = 0; k < out[v].n; k++) {
+                int b = out[v].a[k];
+                if (!contracted[head[b]] && head[b] != v)
+                    maxOut = Math.max(maxOut, weight[b]);
+            }
+            for (int j = 0; j < in[v].n; j++) {
+                int a = in[v].a[j];
+                int x = tail[a];
+                if (contracted[x] || x == v)
+                    continue;
+                witness(x, v, weight[a] + maxOut, maxSettled);
+                for (int k = 0; k < out[v].n; k++) {
+                    int b = out[v].a[k];
+                    int y = head[b];
+                    if (contracted[y] || y == v || y == x)
+                        continue;
+                    if (dist[y] > weight[a] + weight[b]) {
+                        // keep only the cheapest arc into v from x, and out of v to y
+                        if (!cheapest(in[v], a, x, true) || !cheapest(out[v], b, y, false))
+                            continue;
+                        viaIn.add(a);
+                        viaOut.add(b);
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return {@code true} unless another arc of {@code list} between
+         *         the same ends is lighter, or as light with a smaller id
+         */
+        private boolean cheapest(IntList list, int a, int end, boolean tails) {
+            for (int k = 0; k < list.n; k++) {
+                int c = list.a[k];
+                if ((tails ? tail[c] : head[c]) == end
+                        && (weight[c] < weight[a] || weight[c] == weight[a] && c < a))
+                    return false;
+            }
+            return true;
+        }
+
+        /**
+         * Dijkstra from {@code x} in the remaining graph without {@code v},
+         * up to distance {@code limit} or {@code maxSettled} settled vertices.
+         * Leaves the distances in {@code dist}.
+         */
+        private void witness(int x, int v, double limit, int maxSettled) {
+            for (int k = 0; k < touched.n; k++)
+                dist[touched.a[k]] = Double.POSITIVE_INFINITY;
+            touched.clear();
+            pq.clear();
+            dist[x] = 0.0;
+            touched.add(x);
+            pq.insert(x, 0.0);
+            int settled = 0;
+            while (!pq.isEmpty() && settled++ < maxSettled) {
+                if (pq.minKey() > limit)
+                    break;
+                int z = pq.delMin();
+                for (int k = 0; k < out[z].n; k++) {
+                    int b = out[z].a[k];
+                    int y = head[b];
+                    if (contracted[y] || y == v)
+                        continue;
+                    double d = dist[z] + weight[b];
+                    if (d < dist[y]) {
+                        if (dist[y] == Double.POSITIVE_INFINITY)
+                            touched.add(y);
+                        dist[y] = d;
+                        if (pq.contains(y)) pq.decreaseKey(y, d);
+                        else                pq.insert(y, d);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Growable array of ints.
+     */
+    private static class IntList {
+        private int[] a = new int[4];
+        private int n;
+
+        private void add(int v) {
+            if (n == a.length)
+                a = Arrays.copyOf(a, 2 * n);
+            a[n++] = v;
+        }
+
+        private void clear() {
+            n = 0;
+        }
+    }
+
+    /**
+     * Writes the overlay to a binary file.
+     *
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(V);
+            out.writeInt(E);
+            out.writeInt(arcs);
+            for (int v = 0; v < V; v++)
+                out.writeInt(rank[v]);
+            for (int a = 0; a < arcs; a++) {
+                out.writeInt(tail[a]);
+                out.writeInt(head[a]);
+                out.writeDouble(weight[a]);
+                out.writeInt(child1[a]);
+                out.writeInt(child2[a]);
+            }
+        }
+    }
+
+    /**
+     * Reads an overlay written by {@link #write}. The original edges are
+     * new {@link DirectedEdge} objects with the same ends and weights.
+     *
+     * @param file the file to read
+     * @return the contraction hierarchy
+     * @throws IOException if the file cannot be read or is not an overlay
+     */
+    public static ContractionHierarchy read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException(file + " is not a contraction hierarchy");
+            int version = in.readInt();
+            if (version != VERSION)
+                throw new IOException(file + " has version " + version + ", expected " + VERSION);
+            int V = in.readInt();
+            int E = in.readInt();
+            int arcs = in.readInt();
+            if (V < 0 || E < 0 || arcs < E)
+                throw new IOException(file + " has a corrupt header");
+            ContractionHierarchy ch = new ContractionHierarchy(V, E, arcs);
+            for (int v = 0; v < V; v++)
+                ch.rank[v] = in.readInt();
+            for (int a = 0; a < arcs; a++) {
+                ch.tail[a] = in.readInt();
+                ch.head[a] = in.readInt();
+                ch.weight[a] = in.readDouble();
+                ch.child1[a] = in.readInt();
+                ch.child2[a] = in.readInt();
+                if (a < E)
+                    ch.edges[a] = new DirectedEdge(ch.tail[a], ch.head[a], ch.weight[a]);
+            }
+            ch.index();
+            return ch;
+        }
+    }
+}
@@ -0,0 +1,328 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedList;
+import java.util.Random;
+
+/**
+ * Point-to-point shortest paths over a {@link ContractionHierarchy}.
+ * <p>
+ * A query from {@code v} to {@code u} is two Dijkstra searches that only
+ * climb the hierarchy: forward from {@code v} over arcs to higher ranked
+ * vertices, and backward from {@code u} over arcs coming down from higher
+ * ranked vertices. The shortest path is the best sum over the vertices both
+ * searches reach, and each search stops once its queue minimum passes that
+ * sum. Shortcuts on the path are unpacked into the original
+ * {@link DirectedEdge}s.
+ * <p>
+ * Distances are those of {@link DijkstraSDP} up to rounding: a shortcut
+ * adds its two halves in another order than a search over the original
+ * edges. The search arrays are reused from query to query and reset
+ * through the list of vertices the last query reached. Not thread-safe:
+ * use one instance per thread over a shared hierarchy.
+ */
+public class ContractionHierarchySP {
+
+    private final ContractionHierarchy ch;
+    // forward search from the source
+    private final double[] distUp;
+    private final int[] arcUp;
+    private final IndexMinDoublePQ pqUp;
+    // backward search from the destination
+    private final double[] distDown;
+    private final int[] arcDown;
+    private final IndexMinDoublePQ pqDown;
+    // vertices with a finite distance in either search
+    private final int[] touched;
+    private int touchedCount;
+
+    // last query
+    private int source = -1;
+    private int dest = -1;
+    private double dist;
+    private int meet;
+    private int settled;
+
+    /**
+     * @param ch the contraction hierarchy
+     */
+    public ContractionHierarchySP(ContractionHierarchy ch) {
+        this.ch = ch;
+        int V = ch.V();
+        distUp = new double[V];
+        arcUp = new int[V];
+        distDown = new double[V];
+        arcDown = new int[V];
+        pqUp = new IndexMinDoublePQ(Math.max(1, V));
+        pqDown = new IndexMinDoublePQ(Math.max(1, V));
+        touched = new int[V];
+        for (int v = 0; v < V; v++) {
+            distUp[v] = Double.POSITIVE_INFINITY;
+            distDown[v] = Double.POSITIVE_INFINITY;
+        }
+    }
+
+    /**
+     * @param v the vertex needs to checked
+     * @throws IllegalArgumentException if v < 0 || v >= V
+     */
+    private void validateVertex(int v) {
+        int V = ch.V();
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("Vertex " + v + " is not between 0 and " + (V - 1));
+    }
+
+    /**
+     * Returns the length of a shortest path from {@code v} to {@code u}.
+     *
+     * @param v the source vertex
+     * @param u the destination vertex
+     * @return Infinity if no such path from v to u
+     */
+    public double distFrom(int v, int u) {
+        query(v, u);
+        return dist;
+    }
+
+    /**
+     * @param v the source vertex
+     * @param u the destination vertex
+     * @return {@code true} if there is a path from {@code v} to {@code u}
+     */
+    public boolean hasPathFrom(int v, int u) {
+        return distFrom(v, u) < Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns a shortest path from {@code v} to {@code u} in original edges.
+     *
+     * @param v the source vertex
+     * @param u the destination vertex
+     * @return the edges of the path, or {@code null} if there is no path
+     */
+    public LinkedList<DirectedEdge> pathFrom(int v, int u) {
+        if (!hasPathFrom(v, u))
+            return null;
+
+        LinkedList<DirectedEdge> path = new LinkedList<>();
+        // upward half, walked back from the meeting vertex
+        LinkedList<DirectedEdge> up = new LinkedList<>();
+        for (int x = meet; arcUp[x] != -1; x = ch.tail[arcUp[x]]) {
+            up.clear();
+            unpack(arcUp[x], up);
+            path.addAll(0, up);
+        }
+        // downward half
+        for (int x = meet; arcDown[x] != -1; x = ch.head[arcDown[x]])
+            unpack(arcDown[x], path);
+        return path;
+    }
+
+    /**
+     * Appends the original edges of arc {@code a} to {@code path}.
+     */
+    private void unpack(int a, LinkedList<DirectedEdge> path) {
+        if (ch.child1[a] == -1) {
+            path.add(ch.edges[a]);
+            return;
+        }
+        unpack(ch.child1[a], path);
+        unpack(ch.child2[a], path);
+    }
+
+    /**
+     * @return the number of vertices settled by the last query
+     */
+    public int settledCount() {
+        return settled;
+    }
+
+    /**
+     * Runs the search for ({@code v}, {@code u}) unless it is the last query.
+     */
+    private void query(int v, int u) {
+        validateVertex(v);
+        validateVertex(u);
+        if (v == source && u == dest)
+            return;
+
+        for (int k = 0; k < touchedCount; k++) {
+            int x = touched[k];
+            distUp[x] = Double.POSITIVE_INFINITY;
+            distDown[x] = Double.POSITIVE_INFINITY;
+        }
+        touchedCount = 0;
+        pqUp.clear();
+        pqDown.clear();
+        dist = Double.POSITIVE_INFINITY;
+        meet = -1;
+        settled = 0;
+
+        reach(v);
+        distUp[v] = 0.0;
+        arcUp[v] = -1;
+        pqUp.insert(v, 0.0);
+        reach(u);
+        distDown[u] = 0.0;
+        arcDown[u] = -1;
+        pqDown.insert(u, 0.0);
+
+        while (true) {
+            boolean up = !pqUp.isEmpty() && pqUp.minKey() < dist;
+            boolean down = !pqDown.isEmpty() && pqDown.minKey() < dist;
+            if (!up && !down)
+                break;
+            if (up && (!down || pqUp.minKey() <= pqDown.minKey())) upStep();
+            else                                                   downStep();
+        }
+        source = v;
+        dest = u;
+    }
+
+    /**
+     * Records {@code x} for the reset of the next query.
+     */
+    private void reach(int x) {
+        if (distUp[x] == Double.POSITIVE_INFINITY && distDown[x] == Double.POSITIVE_INFINITY)
+            touched[touchedCount++] = x;
+    }
+
+    private void upStep() {
+        int x = pqUp.delMin();
+        settled++;
+        meet(x);
+        for (int k = ch.upOff[x]; k < ch.upOff[x + 1]; k++) {
+            int a = ch.upArc[k];
+            int y = ch.head[a];
+            double d = distUp[x] + ch.weight[a];
+            if (distUp[y] > d) {
+                reach(y);
+                distUp[y] = d;
+                arcUp[y] = a;
+                if (pqUp.contains(y)) pqUp.decreaseKey(y, d);
+                else                  pqUp.insert(y, d);
+            }
+        }
+    }
+
+    private void downStep() {
+        int x = pqDown.delMin();
+        settled++;
+        meet(x);
+        for (int k = ch.downOff[x]; k < ch.downOff[x + 1]; k++) {
+            int a = ch.downArc[k];
+            int y = ch.tail[a];
+            double d = distDown[x] + ch.weight[a];
+            if (distDown[y] > d) {
+                reach(y);
+                distDown[y] = d;
+                arcDown[y] = a;
+                if (pqDown.contains(y)) pqDown.decreaseKey(y, d);
+                else                    pqDown.insert(y, d);
+            }
+        }
+    }
+
+    /**
+     * Updates the best path if the two searches meet at {@code x}.
+     */
+    private void meet(int x) {
+        double d = distUp[x] + distDown[x];
+        if (d < dist) {
+            dist = d;
+            meet = x;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        BufferedReader br = new BufferedReader(new FileReader("dijkstra.txt"));
+        EdgeWeightedDigraph G = new EdgeWeightedDigraph(br);
+        ContractionHierarchySP sp = new ContractionHierarchySP(new ContractionHierarchy(G));
+        boolean same = true;
+        for (int u = 0; u < G.V(); u++) {
+            DijkstraSDP sdp = new DijkstraSDP(G, u);
+            for (int v = 0; v < G.V(); v++)
+                same &= sdp.distFrom(v) == sp.distFrom(v, u)
+                        || Math.abs(sdp.distFrom(v) - sp.distFrom(v, u)) < 1E-12;
+        }
+        System.out.println("Same distances as DijkstraSDP: " + same);
+        System.out.printf("0 to 6 (%.2f)  ", sp.distFrom(0, 6));
+        for (DirectedEdge e : sp.pathFrom(0, 6))
+            System.out.print(e + "  ");
+        System.out.println("\n");
+
+        // 200 x 200 grid of one-way and two-way streets, every tenth row
+        // and column a highway five times as fast
+        int n = 200, V = n * n;
+        Random random = new Random(1);
+        EdgeWeightedDigraph grid = new EdgeWeightedDigraph(V);
+        for (int v = 0; v < V; v++) {
+            int r = v / n, c = v % n;
+            if (c + 1 < n) {
+                double speed = r % 10 == 0 ? 5.0 : 1.0;
+                grid.addEdge(new DirectedEdge(v, v + 1, (1 + random.nextDouble()) / speed));
+                if (random.nextInt(5) != 0)
+                    grid.addEdge(new DirectedEdge(v + 1, v, (1 + random.nextDouble()) / speed));
+            }
+            if (r + 1 < n) {
+                double speed = c % 10 == 0 ? 5.0 : 1.0;
+                grid.addEdge(new DirectedEdge(v, v + n, (1 + random.nextDouble()) / speed));
+                if (random.nextInt(5) != 0)
+                    grid.addEdge(new DirectedEdge(v + n, v, (1 + random.nextDouble()) / speed));
+            }
+        }
+        long start = System.currentTimeMillis();
+        ContractionHierarchy ch = new ContractionHierarchy(grid);
+        long preprocessing = System.currentTimeMillis() - start;
+        Path file = Files.createTempFile("grid", ".ch");
+        ch.write(file);
+        ch = ContractionHierarchy.read(file);
+        Files.delete(file);
+
+        CSREdgeWeightedDigraph csr = new CSREdgeWeightedDigraph(grid);
+        DijkstraEngine engine = new DijkstraEngine(csr);
+        DijkstraWorkspace ws = engine.newWorkspace();
+        sp = new ContractionHierarchySP(ch);
+        int queries = 1000;
+        int[] from = new int[queries], to = new int[queries];
+        for (int k = 0; k < queries; k++) {
+            from[k] = random.nextInt(V);
+            to[k] = random.nextInt(V);
+        }
+        start = System.nanoTime();
+        double[] expected = new double[queries];
+        for (int k = 0; k < queries; k++)
+            expected[k] = engine.distFrom(from[k], to[k], ws);
+        long dijkstra = System.nanoTime() - start;
+        start = System.nanoTime();
+        long settledTotal = 0;
+        double[] found = new double[queries];
+        for (int k = 0; k < queries; k++) {
+            found[k] = sp.distFrom(from[k], to[k]);
+            settledTotal += sp.settledCount();
+        }
+        long hierarchy = System.nanoTime() - start;
+        same = true;
+        for (int k = 0; k < queries; k++) {
+            same &= Math.abs(expected[k] - found[k]) < 1E-9;
+            double length = 0.0;
+            int x = from[k];
+            for (DirectedEdge e : sp.pathFrom(from[k], to[k])) {
+                same &= e.from() == x;
+                x = e.to();
+                length += e.weight();
+            }
+            same &= x == to[k] && Math.abs(length - found[k]) < 1E-9;
+        }
+
+        System.out.println("Grid " + n + " x " + n + ", " + grid.E() + " edges, "
+                + ch.shortcuts() + " shortcuts, preprocessing " + preprocessing + " ms");
+        System.out.printf("  DijkstraEngine         %8.1f us per query\n", dijkstra / 1000.0 / queries);
+        System.out.printf("  ContractionHierarchySP %8.1f us per query, %d settled\n",
+                hierarchy / 1000.0 / queries, settledTotal / queries);
+        System.out.println("  Same distances and paths: " + same);
+    }
+}
@@ -0,0 +1,449 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Delta-stepping: single destination shortest paths relaxed in parallel.
+ * <p>
+ * Vertices are kept in buckets of width {@code delta} by their distance to
+ * the destination {@code u}. The lowest bucket is emptied in rounds: the
+ * light edges (weight at most {@code delta}) entering every vertex of the
+ * bucket are relaxed in parallel, and vertices that fall into the same
+ * bucket come back for another round. Once the bucket stays empty the heavy
+ * edges of all the vertices it held are relaxed, also in parallel. A small
+ * {@code delta} behaves like {@link DijkstraSDP}, a large one like
+ * {@link BellmanFordSDP}.
+ * <p>
+ * Workers lower {@code distFrom[]} with compare-and-set, so no locks are
+ * taken. No {@code edgeFrom[]} is kept while solving: the first call to
+ * {@code pathFrom} builds the tree from edges that are tight for the final
+ * distances. Edge weights must be non-negative.
+ */
+public class DeltaSteppingSDP {
+    // vertices below this many are relaxed in one task
+    private static final int SEQUENTIAL_VERTICES = 512;
+
+    private final CSREdgeWeightedDigraph G;
+    private final int u;
+    private final double delta;
+    // distFrom[v] as raw long bits; non-negative doubles order like their bits
+    private final AtomicLongArray distFrom;
+
+    // vertices whose distance dropped during the current relaxation step
+    private final int[] changed;
+    private final AtomicInteger changedCount = new AtomicInteger();
+    // changedStep[v] = last step that put v into changed[]
+    private final AtomicIntegerArray changedStep;
+    private int step = 0;
+    // mark[v] = last pass that took v out of a bucket, used by the driver only
+    private final int[] mark;
+    private int pass = 0;
+
+    // edgeFrom[v] = edge id on a shortest path from v to u, built on demand
+    private int[] edgeFrom;
+    // fallback tree if the tight edges do not reach every vertex
+    private DijkstraWorkspace tree;
+
+    /**
+     * Solves with one worker per core and {@code delta} set from the
+     * heaviest edge and the average degree.
+     *
+     * @param G the edge-weighted digraph
+     * @param u the destination vertex
+     * @throws IllegalArgumentException if an edge weight is negative
+     */
+    public DeltaSteppingSDP(EdgeWeightedDigraph G, int u) {
+        this(new CSREdgeWeightedDigraph(G), u);
+    }
+
+    /**
+     * @param G           the edge-weighted digraph
+     * @param u           the destination vertex
+     * @param delta       the bucket width
+     * @param parallelism the number of worker threads
+     * @throws IllegalArgumentException if an edge weight is negative
+     * @throws IllegalArgumentException unless {@code delta > 0} and {@code parallelism >= 1}
+     */
+    public DeltaSteppingSDP(EdgeWeightedDigraph G, int u, double delta, int parallelism) {
+        this(new CSREdgeWeightedDigraph(G), u, delta, parallelism);
+    }
+
+    /**
+     * Solves with one worker per core and {@code delta} set from the
+     * heaviest edge and the average degree.
+     *
+     * @param G the edge-weighted digraph
+     * @param u the destination vertex
+     * @throws IllegalArgumentException if an edge weight is negative
+     */
+    public DeltaSteppingSDP(CSREdgeWeightedDigraph G, int u) {
+        this(G, u, defaultDelta(G), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param G           the edge-weighted digraph
+     * @param u           the destination vertex
+     * @param delta       the bucket width
+     * @param parallelism the number of worker threads
+     * @throws IllegalArgumentException if an edge weight is negative
+     * @throws IllegalArgumentException unless {@code delta > 0} and {@code parallelism >= 1}
+     */
+    public DeltaSteppingSDP(CSREdgeWeightedDigraph G, int u, double delta, int parallelism) {
+        if (!(delta > 0))
+            throw new IllegalArgumentException("Delta must be positive");
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive");
+        for (int i = 0; i < G.E(); i++) {
+            if (G.weight(i) < 0)
+                throw new IllegalArgumentException("edge " + G.edge(i) + " has negative weight");
+        }
+        this.G = G;
+        this.delta = delta;
+        int V = G.V();
+        this.u = u;
+        validateVertex(u);
+
+        distFrom = new AtomicLongArray(V);
+        long infinity = Double.doubleToRawLongBits(Double.POSITIVE_INFINITY);
+        for (int v = 0; v < V; v++)
+            distFrom.set(v, infinity);
+        distFrom.set(u, Double.doubleToRawLongBits(0.0));
+        changed = new int[V];
+        changedStep = new AtomicIntegerArray(V);
+        mark = new int[V];
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            solve(pool);
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Bucket width equal to the heaviest edge over the average degree.
+     */
+    private static double defaultDelta(CSREdgeWeightedDigraph G) {
+        double max = 0.0;
+        for (int i = 0; i < G.E(); i++)
+            max = Math.max(max, G.weight(i));
+        if (max == 0.0 || G.E() == 0)
+            return 1.0;
+        return max * G.V() / G.E();
+    }
+
+    /**
+     * Empties the buckets in increasing order.
+     */
+    private void solve(ForkJoinPool pool) {
+        TreeMap<Long, IntList> buckets = new TreeMap<>();
+        IntList start = new IntList();
+        start.add(u);
+        buckets.put(0L, start);
+
+        IntList frontier = new IntList();
+        IntList bucketed = new IntList();
+        while (!buckets.isEmpty()) {
+            Map.Entry<Long, IntList> entry = buckets.pollFirstEntry();
+            long b = entry.getKey();
+
+            // live entries only: each vertex once, and still in bucket b
+            pass++;
+            frontier.clear();
+            IntList list = entry.getValue();
+            for (int k = 0; k < list.n; k++) {
+                int v = list.a[k];
+                if (mark[v] != pass && bucket(v) == b) {
+                    mark[v] = pass;
+                    frontier.add(v);
+                }
+            }
+
+            // light edges, until no vertex falls back into bucket b
+            pass++;
+            bucketed.clear();
+            while (frontier.n > 0) {
+                for (int k = 0; k < frontier.n; k++) {
+                    int v = frontier.a[k];
+                    if (mark[v] != pass) {
+                        mark[v] = pass;
+                        bucketed.add(v);
+                    }
+                }
+                relax(pool, frontier, true);
+                frontier.clear();
+                for (int k = 0; k < changedCount.get(); k++) {
+                    int w = changed[k];
+                    long c = bucket(w);
+                    if (c == b) frontier.add(w);
+                    else        put(buckets, c, w);
+                }
+            }
+
+            // heavy edges always lead to a later bucket
+            relax(pool, bucketed, false);
+            for (int k = 0; k < changedCount.get(); k++) {
+                int w = changed[k];
+                put(buckets, bucket(w), w);
+            }
+        }
+    }
+
+    private long bucket(int v) {
+        return (long) (dist(v) / delta);
+    }
+
+    private static void put(TreeMap<Long, IntList> buckets, long b, int v) {
+        IntList list = buckets.get(b);
+        if (list == null) {
+            list = new IntList();
+            buckets.put(b, list);
+        }
+        list.add(v);
+    }
+
+    private double dist(int v) {
+        return Double.longBitsToDouble(distFrom.get(v));
+    }
+
+    /**
+     * Relaxes the light or the heavy edges entering the vertices of
+     * {@code list}, leaving the vertices whose distance dropped in
+     * {@code changed[0 .. changedCount)}.
+     */
+    private void relax(ForkJoinPool pool, IntList list, boolean light) {
+        step++;
+        changedCount.set(0);
+        Relax task = new Relax(list.a, 0, list.n, light);
+        if (list.n <= SEQUENTIAL_VERTICES) task.compute();
+        else                               pool.invoke(task);
+    }
+
+    /**
+     * Splits a range of vertices in half until it is small enough to relax.
+     */
+    private class Relax extends RecursiveAction {
+        private final int[] vertices;
+        private final int lo;
+        private final int hi;
+        private final boolean light;
+
+        private Relax(int[] vertices, int lo, int hi, boolean light) {
+            this.vertices = vertices;
+            this.lo = lo;
+            this.hi = hi;
+            this.light = light;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= SEQUENTIAL_VERTICES) {
+                for (int k = lo; k < hi; k++)
+                    relax(vertices[k], light);
+            }
+            else {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Relax(vertices, lo, mid, light), new Relax(vertices, mid, hi, light));
+            }
+        }
+    }
+
+    /**
+     * Relaxes the light or the heavy edges entering {@code v}.
+     */
+    private void relax(int v, boolean light) {
+        double d = dist(v);
+        for (int i = G.begin(v); i < G.end(v); i++) {
+            double weight = G.weight(i);
+            if ((weight <= delta) != light)
+                continue;
+            int w = G.from(i);
+            if (lower(w, d + weight) && changedStep.getAndSet(w, step) != step)
+                changed[changedCount.getAndIncrement()] = w;
+        }
+    }
+
+    /**
+     * Atomically sets {@code distFrom[w]} to {@code d} if that is smaller.
+     *
+     * @return {@code true} if the distance was lowered
+     */
+    private boolean lower(int w, double d) {
+        long bits = Double.doubleToRawLongBits(d);
+        while (true) {
+            long current = distFrom.get(w);
+            if (d >= Double.longBitsToDouble(current))
+                return false;
+            if (distFrom.compareAndSet(w, current, bits))
+                return true;
+        }
+    }
+
+    /**
+     * @param v the vertex needs to checked
+     * @throws IllegalArgumentException if v < 0 || v >= V
+     */
+    private void validateVertex(int v) {
+        int V = G.V();
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("Vertex " + v + " is not between 0 and " + (V - 1));
+    }
+
+    /**
+     * Returns the length of a shortest path from vertex {@code v} to the
+     * destination {@code u}.
+     *
+     * @param v the source vertex
+     * @return Infinity if no such path from v to u
+     */
+    public double distFrom(int v) {
+        validateVertex(v);
+        return dist(v);
+    }
+
+    /**
+     * @param v the source vertex
+     * @return {@code true} if there is a path from {@code v} to the
+     *         destination {@code u}, and {@code false} otherwise
+     */
+    public boolean hasPathFrom(int v) {
+        validateVertex(v);
+        return dist(v) < Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns a shortest path from vertex {@code v} to the destination {@code u}
+     *
+     * @param v the source vertex
+     * @return the edges of the path, or {@code null} if there is no path
+     */
+    public LinkedList<DirectedEdge> pathFrom(int v) {
+        validateVertex(v);
+        if (!hasPathFrom(v))
+            return null;
+        if (edgeFrom == null)
+            buildTree();
+        if (tree != null)
+            return tree.pathFrom(v);
+
+        LinkedList<DirectedEdge> path = new LinkedList<>();
+        for (int x = v; edgeFrom[x] != -1; ) {
+            DirectedEdge e = G.edge(edgeFrom[x]);
+            path.add(e);
+            x = e.to();
+        }
+        return path;
+    }
+
+    /**
+     * Breadth-first search back from {@code u} over tight edges. Rounding
+     * can in rare cases leave a vertex whose tight edges lead nowhere; then
+     * the paths come from a sequential Dijkstra instead.
+     */
+    private void buildTree() {
+        int V = G.V();
+        int[] edgeFrom = new int[V];
+        boolean[] marked = new boolean[V];
+        int[] queue = new int[V];
+        int head = 0, tail = 0;
+        edgeFrom[u] = -1;
+        marked[u] = true;
+        queue[tail++] = u;
+        while (head < tail) {
+            int v = queue[head++];
+            double d = dist(v);
+            for (int i = G.begin(v); i < G.end(v); i++) {
+                int w = G.from(i);
+                if (!marked[w] && dist(w) == d + G.weight(i)) {
+                    marked[w] = true;
+                    edgeFrom[w] = i;
+                    queue[tail++] = w;
+                }
+            }
+        }
+
+        for (int v = 0; v < V; v++) {
+            if (!marked[v] && dist(v) < Double.POSITIVE_INFINITY) {
+                DijkstraEngine engine = new DijkstraEngine(G);
+                tree = engine.solve(u, engine.newWorkspace());
+                break;
+            }
+        }
+        this.edgeFrom = edgeFrom;
+    }
+
+    /**
+     * Growable array of vertices.
+     */
+    private static class IntList {
+        private int[] a = new int[16];
+        private int n;
+
+        private void add(int v) {
+            if (n == a.length) {
+                int[] copy = new int[2 * n];
+                System.arraycopy(a, 0, copy, 0, n);
+                a = copy;
+            }
+            a[n++] = v;
+        }
+
+        private void clear() {
+            n = 0;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        BufferedReader br = new BufferedReader(new FileReader("dijkstra.txt"));
+        EdgeWeightedDigraph G = new EdgeWeightedDigraph(br);
+
+        boolean same = true;
+        for (int u = 0; u < G.V(); u++) {
+            DijkstraSDP sdp = new DijkstraSDP(G, u);
+            DeltaSteppingSDP delta = new DeltaSteppingSDP(G, u, 0.3, 4);
+            for (int v = 0; v < G.V(); v++)
+                same &= sdp.distFrom(v) == delta.distFrom(v);
+        }
+        System.out.println("Same distances as DijkstraSDP: " + same);
+        DeltaSteppingSDP sp = new DeltaSteppingSDP(G, 6);
+        System.out.printf("0 to 6 (%.2f)  ", sp.distFrom(0));
+        for (DirectedEdge e : sp.pathFrom(0))
+            System.out.print(e + "  ");
+        System.out.println("\n");
+
+        // random digraph with a million vertices and eight million edges
+        int V = 1000000, E = 8 * V;
+        Random random = new Random(1);
+        EdgeWeightedDigraph big = new EdgeWeightedDigraph(V);
+        for (int i = 0; i < E; i++)
+            big.addEdge(new DirectedEdge(random.nextInt(V), random.nextInt(V), random.nextDouble()));
+        CSREdgeWeightedDigraph csr = new CSREdgeWeightedDigraph(big);
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("V = " + V + ", E = " + E + ", " + cores + " cores");
+
+        long start = System.currentTimeMillis();
+        DijkstraEngine engine = new DijkstraEngine(csr);
+        DijkstraWorkspace ws = engine.solve(0, engine.newWorkspace());
+        System.out.printf("  DijkstraEngine            %5d ms\n", System.currentTimeMillis() - start);
+        for (int threads : new int[] { 1, cores }) {
+            start = System.currentTimeMillis();
+            DeltaSteppingSDP ds = new DeltaSteppingSDP(csr, 0, 1.0 / 8, threads);
+            long time = System.currentTimeMillis() - start;
+            boolean agree = true;
+            for (int v = 0; v < V; v++)
+                agree &= ds.distFrom(v) == ws.distFrom(v);
+            System.out.printf("  DeltaSteppingSDP %2d threads %5d ms  same: %b\n", threads, time, agree);
+        }
+    }
+}
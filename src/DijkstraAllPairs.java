@@ -1,41 +1,42 @@
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
 public class DijkstraAllPairs {
     // number of vertices in the graph
     private final int V;
+    private final EdgeWeightedDigraph G;
     private List<DirectedEdge>[] edgeFrom;
+    // allPaths[s].get(t) = all paths from s to t, null until first asked for
     private List<List<List<DirectedEdge>>>[] allPaths;
 
     /**
-     * Initialization function with a directed graph, initializes the properties
-     * Call the function to find all paths from one vertex to other (all vertex)
+     * Initialization function with a directed graph, initializes the properties.
+     * The paths between a pair of vertices are only searched for the first
+     * time that pair is asked for.
      * @param G an edge weighted digraph
      */
     public DijkstraAllPairs(EdgeWeightedDigraph G) {
         this.V = G.V();
+        this.G = G;
 
-        allPaths = (LinkedList<List<List<DirectedEdge>>>[]) new LinkedList[G.V()];
+        allPaths = (ArrayList<List<List<DirectedEdge>>>[]) new ArrayList[G.V()];
         edgeFrom = (LinkedList<DirectedEdge>[]) new LinkedList[G.V()];
 
         // call the init function
         initializes(G);
-        // call the function to find all paths between two vertex
-        findAllPathsBetweenTwoVertex();
     }
 
     private void initializes(EdgeWeightedDigraph G) {
         // initialize all properties of the object
         for (int v = 0; v < V; v++) {
             edgeFrom[v] = new LinkedList<DirectedEdge>();
-            allPaths[v] = new LinkedList<List<List<DirectedEdge>>>();
-            for (int n = 0; n < V; n++) {
-                List<List<DirectedEdge>> tmp = new LinkedList<List<DirectedEdge>>();
-                allPaths[v].add(tmp);
-            }
+            allPaths[v] = new ArrayList<List<List<DirectedEdge>>>(V);
+            for (int n = 0; n < V; n++)
+                allPaths[v].add(null);
         }
         // find edges coming out of v
         for (int v = 0; v < G.V(); v++) {
@@ -56,24 +57,26 @@ public class DijkstraAllPairs {
     }
 
     /**
-     * Build an array of all paths, each element in the array is a 
-     * list of paths in order to other vertices.
+     * Find all paths from s to t the first time they are asked for.
+     * The number of simple paths can be exponential in V, prefer
+     * {@link #shortestPathsBetween(int, int, int, double)} on large graphs.
+     * @param s the source vertex
+     * @param t the sink vertex
+     * @return the list of all paths from s to t
      */
-    private void findAllPathsBetweenTwoVertex() {
-        // secondary ingredients
-        List<DirectedEdge> path;
-        boolean[] visited;
-        // using deepth-first-search to find all paths 
-        // from v to w (w != v)
-        for (int v = 0; v < V; v++) {
-            visited = new boolean[V];
-            path = new LinkedList<DirectedEdge>();
-
-            for (int w = 0; w < V; w++) {
-                if (w == v) continue;
-                dfs(v, w, visited, path);
-            }
+    private List<List<DirectedEdge>> findAllPathsBetween(int s, int t) {
+        validateVertex(s);
+        validateVertex(t);
+        List<List<DirectedEdge>> paths = allPaths[s].get(t);
+        if (paths == null) {
+            allPaths[s].set(t, new LinkedList<List<DirectedEdge>>());
+            // using deepth-first-search to find all paths
+            // from s to t (t != s)
+            if (s != t)
+                dfs(s, t, new boolean[V], new LinkedList<DirectedEdge>());
+            paths = allPaths[s].get(t);
         }
+        return paths;
     }
 
     /**
@@ -113,7 +116,7 @@ public class DijkstraAllPairs {
      *         {@code false} otherwise
      */
     public boolean hasPathBetween(int s, int t) {
-        return allPaths[s].get(t).size() > 0;
+        return findAllPathsBetween(s, t).size() > 0;
     }
 
     /**
@@ -122,7 +125,20 @@ public class DijkstraAllPairs {
      * @return a list of all paths from source vertex to sink vertex
      */
     public List<List<DirectedEdge>> allPathsBetween(int s, int t) {
-        return allPaths[s].get(t);
+        return findAllPathsBetween(s, t);
+    }
+
+    /**
+     * Lazily enumerates the shortest simple paths from s to t, shortest
+     * first, without searching all of them.
+     * @param s the source vertex
+     * @param t the sink vertex
+     * @param k the maximum number of paths
+     * @param maxLength paths longer than this are skipped
+     * @return the paths, produced one at a time as they are iterated
+     */
+    public Iterable<List<DirectedEdge>> shortestPathsBetween(int s, int t, int k, double maxLength) {
+        return new KShortestPaths(G, s, t, k, maxLength);
     }
 
     /**
@@ -131,7 +147,7 @@ public class DijkstraAllPairs {
      * @param t the sink vertex
      */
     public void printAllPathsBetween(int s, int t) {
-        List<List<DirectedEdge>> paths = allPaths[s].get(t);
+        List<List<DirectedEdge>> paths = findAllPathsBetween(s, t);
         if (paths.size() == 0) {
             System.out.println(s + " to " + t + "     no path");
         }
@@ -158,5 +174,13 @@ public class DijkstraAllPairs {
             DAP.printAllPathsBetween(4, v);
             System.out.println();
         }
+
+        System.out.println("3 shortest paths from 4 to 6");
+        for (List<DirectedEdge> l : DAP.shortestPathsBetween(4, 6, 3, Double.POSITIVE_INFINITY)) {
+            System.out.print(4 + " to " + 6 + "  ");
+            for (DirectedEdge e : l)
+                System.out.print(e + "  ");
+            System.out.println();
+        }
     }
 }
\ No newline at end of file
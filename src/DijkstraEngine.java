@@ -0,0 +1,154 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+
+/**
+ * Single destination shortest paths over a {@link CSREdgeWeightedDigraph},
+ * computing the same {@code distFrom}/{@code pathFrom} results as
+ * {@link DijkstraSDP}. The priority queue is an {@link IndexMinDoublePQ} with
+ * a real {@code decreaseKey}, so it never holds more than V entries, and all
+ * state lives in a caller-owned {@link DijkstraWorkspace}: once the
+ * workspace exists, a query allocates nothing.
+ */
+public class DijkstraEngine {
+
+    private final CSREdgeWeightedDigraph G;
+
+    /**
+     * @param G the edge-weighted digraph
+     * @throws IllegalArgumentException if an edge weight is negative
+     */
+    public DijkstraEngine(CSREdgeWeightedDigraph G) {
+        for (int i = 0; i < G.E(); i++) {
+            if (G.weight(i) < 0)
+                throw new IllegalArgumentException("edge " + G.edge(i) + " has negative weight");
+        }
+        this.G = G;
+    }
+
+    /**
+     * @return the graph this engine searches
+     */
+    public CSREdgeWeightedDigraph graph() {
+        return G;
+    }
+
+    /**
+     * @return a workspace sized for this engine's graph
+     */
+    public DijkstraWorkspace newWorkspace() {
+        return new DijkstraWorkspace(G.V());
+    }
+
+    /**
+     * Computes the shortest paths from every vertex to the destination
+     * {@code u} into {@code ws}, discarding its previous contents.
+     *
+     * @param u  the destination vertex
+     * @param ws the workspace receiving the shortest-path tree
+     * @return {@code ws}
+     */
+    public DijkstraWorkspace solve(int u, DijkstraWorkspace ws) {
+        start(u, ws);
+        while (!ws.pq.isEmpty())  // O((E + V) * log(V))
+            settle(ws);
+        return ws;
+    }
+
+    /**
+     * Like {@link #solve(int, DijkstraWorkspace)} but stops as soon as the
+     * source {@code v} is settled; only {@code ws.distFrom(v)} and
+     * {@code ws.pathFrom(v)} are then guaranteed to be final.
+     *
+     * @param v  the source vertex
+     * @param u  the destination vertex
+     * @param ws the workspace receiving the search
+     * @return the length of the shortest path from {@code v} to {@code u}
+     */
+    public double distFrom(int v, int u, DijkstraWorkspace ws) {
+        start(u, ws);
+        while (!ws.pq.isEmpty()) {
+            if (settle(ws) == v) break;
+        }
+        return ws.distFrom(v);
+    }
+
+    /**
+     * Resets {@code ws} and puts the destination {@code u} on the queue.
+     */
+    void start(int u, DijkstraWorkspace ws) {
+        ws.reset(G);
+        ws.touch(u);
+        ws.distFrom[u] = 0.0;
+        ws.pq.insert(u, 0.0);
+    }
+
+    /**
+     * Removes the closest vertex from the queue and relaxes the edges
+     * entering it.
+     *
+     * @return the settled vertex
+     */
+    int settle(DijkstraWorkspace ws) {
+        int v = ws.pq.delMin();
+        ws.settled[v] = true;
+        relax(v, ws);
+        return v;
+    }
+
+    /**
+     * Relax vertex v and put other endpoints on priority queue if changed
+     *
+     * @param v  the vertex to relax
+     * @param ws the workspace of the running search
+     */
+    private void relax(int v, DijkstraWorkspace ws) {
+        double[] distFrom = ws.distFrom;
+        IndexMinDoublePQ pq = ws.pq;
+        int end = G.end(v);
+        for (int i = G.begin(v); i < end; i++) {
+            int w = G.from(i);
+            double d = distFrom[v] + G.weight(i);
+            if (distFrom[w] > d) {
+                ws.touch(w);
+                ws.edgeFrom[w] = i;
+                distFrom[w] = d;
+                if (pq.contains(w)) pq.decreaseKey(w, d);
+                else                pq.insert(w, d);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        BufferedReader br = new BufferedReader(new FileReader("dijkstra.txt"));
+        EdgeWeightedDigraph G = new EdgeWeightedDigraph(br);
+        DijkstraEngine engine = new DijkstraEngine(new CSREdgeWeightedDigraph(G));
+        DijkstraWorkspace ws = engine.newWorkspace();
+
+        // every destination through the same workspace
+        boolean same = true;
+        for (int u = 0; u < G.V(); u++) {
+            engine.solve(u, ws);
+            DijkstraSDP sdp = new DijkstraSDP(G, u);
+            for (int v = 0; v < G.V(); v++)
+                same &= Math.abs(sdp.distFrom(v) - ws.distFrom(v)) < 1E-12
+                        || sdp.distFrom(v) == ws.distFrom(v);
+        }
+        System.out.println("Same distances as DijkstraSDP: " + same + "\n");
+
+        engine.solve(6, ws);
+        System.out.println("Shortest path from every vertex to vertex 6:");
+        for (int v = 0; v < G.V(); v++) {
+            if (ws.hasPathFrom(v)) {
+                System.out.printf("%d to %d (%.2f)  ", v, 6, ws.distFrom(v));
+                for (DirectedEdge e : ws.pathFrom(v))
+                    System.out.print(e + "  ");
+                System.out.println();
+            }
+            else {
+                System.out.printf("%d to %d         no path\n", v, 6);
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+import java.util.LinkedList;
+
+/**
+ * Scratch arrays for one {@link DijkstraEngine} search. A workspace is
+ * reset in time proportional to the vertices the previous search touched,
+ * so a thread can run any number of queries through the same workspace
+ * without producing garbage. Not thread-safe: use one per thread.
+ */
+public class DijkstraWorkspace {
+    // distFrom[v] = minimum total weight from v to the destination
+    final double[] distFrom;
+    // edgeFrom[v] = id of the first edge on the path from v, -1 if none
+    final int[] edgeFrom;
+    // settled[v] = v was removed from the priority queue
+    final boolean[] settled;
+    final IndexMinDoublePQ pq;
+    // vertices whose entries differ from the initial state
+    private final int[] touched;
+    private int touchedCount;
+    // graph of the last search, used to rebuild paths
+    private CSREdgeWeightedDigraph G;
+
+    /**
+     * @param V the number of vertices of the graphs this workspace serves
+     */
+    public DijkstraWorkspace(int V) {
+        distFrom = new double[V];
+        edgeFrom = new int[V];
+        settled = new boolean[V];
+        pq = new IndexMinDoublePQ(V);
+        touched = new int[V];
+        touchedCount = 0;
+        for (int v = 0; v < V; v++) {
+            distFrom[v] = Double.POSITIVE_INFINITY;
+            edgeFrom[v] = -1;
+        }
+    }
+
+    /**
+     * Restores the initial state before a search over {@code G}.
+     *
+     * @param G the graph the next search runs on
+     */
+    void reset(CSREdgeWeightedDigraph G) {
+        if (G.V() != distFrom.length)
+            throw new IllegalArgumentException("Workspace has " + distFrom.length
+                    + " vertices, graph has " + G.V());
+        for (int k = 0; k < touchedCount; k++) {
+            int v = touched[k];
+            distFrom[v] = Double.POSITIVE_INFINITY;
+            edgeFrom[v] = -1;
+            settled[v] = false;
+        }
+        touchedCount = 0;
+        pq.clear();
+        this.G = G;
+    }
+
+    /**
+     * Records that {@code v} is about to get a finite distance.
+     */
+    void touch(int v) {
+        if (distFrom[v] == Double.POSITIVE_INFINITY)
+            touched[touchedCount++] = v;
+    }
+
+    /**
+     * @return the number of vertices reached by the last search
+     */
+    public int touchedCount() {
+        return touchedCount;
+    }
+
+    /**
+     * @param v the vertex needs to checked
+     * @throws IllegalArgumentException if v < 0 || v > distFrom.length
+     */
+    private void validateVertex(int v) {
+        int V = distFrom.length;
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("Vertex " + v + " is not between 0 and " + (V - 1));
+    }
+
+    /**
+     * @param v the vertex
+     * @return {@code true} if the last search found a path from {@code v}
+     */
+    public boolean hasPathFrom(int v) {
+        validateVertex(v);
+        return distFrom[v] < Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @param v the vertex
+     * @return length of the shortest path from {@code v} found by the last
+     *         search, Infinity if there is none
+     */
+    public double distFrom(int v) {
+        validateVertex(v);
+        return distFrom[v];
+    }
+
+    /**
+     * @param v the vertex
+     * @return id of the first edge on the path from {@code v}, -1 if none
+     */
+    public int edgeFrom(int v) {
+        validateVertex(v);
+        return edgeFrom[v];
+    }
+
+    /**
+     * Returns the path from {@code v} found by the last search. This is the
+     * only call that allocates.
+     *
+     * @param v the vertex
+     * @return the edges of the path, or {@code null} if there is no path
+     */
+    public LinkedList<DirectedEdge> pathFrom(int v) {
+        validateVertex(v);
+        if (!hasPathFrom(v))
+            return null;
+
+        LinkedList<DirectedEdge> path = new LinkedList<>();
+        for (int x = v; edgeFrom[x] != -1; ) {
+            DirectedEdge e = G.edge(edgeFrom[x]);
+            path.add(e);
+            x = e.to();
+        }
+        return path;
+    }
+}
@@ -0,0 +1,305 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Maximum flow and minimum cut by Dinic's blocking flows, with the same
+ * results as {@link FordFulkerson}.
+ * <p>
+ * The search runs over a {@link ResidualNetwork}, the flow network packed
+ * into arrays of residual arcs; given a {@link FlowNetwork} it packs one
+ * and copies the flows back to the {@link FlowEdge}s at the end. Each phase
+ * runs one breadth-first search from {@code s} that levels the vertices by
+ * their distance, then sends a blocking flow along arcs that go one level
+ * up. A depth-first search with an explicit stack of arcs finds the paths,
+ * and every vertex keeps a current-arc pointer that only moves forward
+ * within a phase, so an arc that is saturated or leads to a dead end is
+ * never looked at again in that phase. All arrays are allocated once.
+ * <p>
+ * Takes O(V<sup>2</sup> E) time in the worst case, and O(E &radic;V) on
+ * unit-capacity bipartite matching networks, where there are at most
+ * O(&radic;V) phases of O(E) work each. The cut is the set of vertices the
+ * last search reaches.
+ */
+public class Dinic implements MaxFlow {
+    private static final double FLOATING_POINT_EPSILON = 1E-10;
+
+    private final int V;
+    private final ResidualNetwork R;
+    private double value;
+    private boolean[] marked;
+
+    // level[v] = distance from s in the residual network, -1 if unreached
+    // or, during a blocking flow, a dead end
+    private int[] level;
+    // next arc of v to try in this phase, -1 once all are tried
+    private int[] current;
+    private int[] queue;
+    // arcs of the path being searched
+    private int[] path;
+
+    /**
+     * Compute a maximum flow and minimum cut in the network {@code G}
+     * from vertex {@code s} to vertex {@code t}, leaving the flow on the
+     * edges of {@code G}.
+     * @param G the flow network
+     * @param s the source vertex
+     * @param t the sink vertex
+     * @throws IllegalArgumentException if {@code s == t}
+     * @throws IllegalArgumentException if initial flow is infeasible
+     */
+    public Dinic(FlowNetwork G, int s, int t) {
+        this(new ResidualNetwork(G), s, t);
+        R.copyFlowsTo(G);
+    }
+
+    /**
+     * Compute a maximum flow and minimum cut in the residual network
+     * {@code R} from vertex {@code s} to vertex {@code t}, leaving the
+     * flow in {@code R}.
+     * @param R the residual network
+     * @param s the source vertex
+     * @param t the sink vertex
+     * @throws IllegalArgumentException if {@code s == t}
+     * @throws IllegalArgumentException if initial flow is infeasible
+     */
+    public Dinic(ResidualNetwork R, int s, int t) {
+        this.V = R.V();
+        this.R = R;
+        validateVertex(s);
+        validateVertex(t);
+        if (s == t)
+            throw new IllegalArgumentException("Source equals sink");
+        if (!isFeasible(s, t))
+            throw new IllegalArgumentException("Initial flow is infeasible");
+
+        level = new int[V];
+        current = new int[V];
+        queue = new int[V];
+        path = new int[V];
+        while (levels(s, t))
+            blockingFlow(s, t);
+
+        // net flow into t: the backward arcs leaving t hold the flow in
+        for (int a = R.first[t]; a != -1; a = R.next[a])
+            value += (a & 1) == 1 ? R.flow(a >> 1) : -R.flow(a >> 1);
+        marked = new boolean[V];
+        for (int v = 0; v < V; v++)
+            marked[v] = level[v] != -1;
+
+        assert check(s, t);
+    }
+
+    /**
+     * Levels the vertices by breadth-first search from {@code s} through
+     * residual arcs, and resets the current arcs.
+     *
+     * @return {@code true} if {@code t} is reached, {@code false} otherwise
+     */
+    private boolean levels(int s, int t) {
+        for (int v = 0; v < V; v++) {
+            level[v] = -1;
+            current[v] = R.first[v];
+        }
+        int qhead = 0, qtail = 0;
+        level[s] = 0;
+        queue[qtail++] = s;
+        while (qhead < qtail) {
+            int x = queue[qhead++];
+            // nothing beyond the level of t is on a shortest path
+            if (level[t] != -1 && level[x] >= level[t])
+                break;
+            for (int a = R.first[x]; a != -1; a = R.next[a]) {
+                int y = R.head[a];
+                if (level[y] == -1 && R.cap[a] > 0) {
+                    level[y] = level[x] + 1;
+                    queue[qtail++] = y;
+                }
+            }
+        }
+        return level[t] != -1;
+    }
+
+    /**
+     * Augments along paths of the level graph until none is left.
+     */
+    private void blockingFlow(int s, int t) {
+        int[] head = R.head;
+        int[] next = R.next;
+        double[] cap = R.cap;
+        int depth = 0;
+        int v = s;
+        while (true) {
+            if (v == t) {
+                double bottle = Double.POSITIVE_INFINITY;
+                for (int k = 0; k < depth; k++)
+                    bottle = Math.min(bottle, cap[path[k]]);
+                // back up to the tail of the first arc it saturates
+                int back = depth;
+                for (int k = 0; k < depth; k++) {
+                    int a = path[k];
+                    if (bottle == cap[a]) {
+                        cap[a] = 0.0;
+                        if (back == depth)
+                            back = k;
+                    }
+                    else cap[a] -= bottle;
+                    cap[a ^ 1] += bottle;
+                }
+                depth = back;
+                v = depth == 0 ? s : head[path[depth - 1]];
+                continue;
+            }
+
+            int a = current[v];
+            while (a != -1 && (level[head[a]] != level[v] + 1 || cap[a] <= 0))
+                a = next[a];
+            current[v] = a;
+            if (a != -1) {
+                path[depth++] = a;
+                v = head[a];
+                continue;
+            }
+
+            // dead end: never enter v again in this phase
+            if (v == s)
+                return;
+            level[v] = -1;
+            depth--;
+            v = depth == 0 ? s : head[path[depth - 1]];
+            current[v] = next[current[v]];
+        }
+    }
+
+    /**
+     * @return the value of the maximum flow
+     */
+    public double maxFlow() {
+        return value;
+    }
+
+    /**
+     * @param v the vertex
+     * @return {@code true} if v is on the side of the mincut
+     *         {@code false} otherwise
+     */
+    public boolean inCut(int v) {
+        validateVertex(v);
+        return marked[v];
+    }
+
+    public Iterable<Integer> edgeInCut() {
+        List<Integer> list = new LinkedList<Integer>();
+        for (int v = 0; v < V; v ++) {
+            if (inCut(v)) list.add(v);
+        }
+        return list;
+    }
+
+    /**
+     * @param v the vertex need to check
+     */
+    private void validateVertex(int v) {
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("Vertex " + v + " is not between 0 and " + (V-1));
+    }
+
+    /**
+     * @return {@code true} if the initial flow is conserved at every vertex
+     *         but {@code s} and {@code t}, {@code false} otherwise
+     */
+    private boolean isFeasible(int s, int t) {
+        double[] net = new double[V];
+        for (int i = 0; i < R.E(); i++) {
+            net[R.from(i)] -= R.flow(i);
+            net[R.to(i)] += R.flow(i);
+        }
+        for (int v = 0; v < V; v++) {
+            if (v != s && v != t && Math.abs(net[v]) > FLOATING_POINT_EPSILON) {
+                System.err.println("Net flow out of " + v + " doesn't equal zero");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check optimality conditions of maximum flow
+     */
+    private boolean check(int s, int t) {
+        if (!isFeasible(s, t))
+            return false;
+        if (!inCut(s)) {
+            System.err.println("Source " + s + " is not on source side of min cut");
+            return false;
+        }
+        if (inCut(t)) {
+            System.err.println("Sink " + t + " is on source side of min cut");
+            return false;
+        }
+        double mincutValue = 0.0;
+        for (int i = 0; i < R.E(); i++) {
+            if (inCut(R.from(i)) && !inCut(R.to(i)))
+                mincutValue += R.capacity(i);
+        }
+        if (Math.abs(mincutValue - value) > FLOATING_POINT_EPSILON * Math.max(1.0, value)) {
+            System.err.println("Max flow value = " + value + ", min cut value = " + mincutValue);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * A bipartite matching network: s to each of n left vertices, each left
+     * vertex to {@code degree} random right vertices, each of n right
+     * vertices to t, all of capacity 1.
+     */
+    private static FlowNetwork matching(int n, int degree, Random random) {
+        int V = 2 * n + 2, s = V - 2, t = V - 1;
+        FlowNetwork G = new FlowNetwork(V);
+        for (int v = 0; v < n; v++) {
+            G.addEdge(new FlowEdge(s, v, 1));
+            G.addEdge(new FlowEdge(n + v, t, 1));
+            for (int k = 0; k < degree; k++)
+                G.addEdge(new FlowEdge(v, n + random.nextInt(n), 1));
+        }
+        return G;
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        BufferedReader br = new BufferedReader(new FileReader("fordfulkerson.txt"));
+        FlowNetwork G = new FlowNetwork(br);
+        int s = 0, t = G.V() - 1;
+        Dinic dinic = new Dinic(G, s, t);
+        System.out.println("Max flow from " + s + " to " + t);
+        for (int v = 0; v < G.V(); v++) {
+            for (FlowEdge e : G.adj(v)) {
+                if (v == e.from() && e.flow() > 0)
+                    System.out.println("  " + e);
+            }
+        }
+        System.out.print("Min cut: { ");
+        for (int v : dinic.edgeInCut())
+            System.out.print(v + ", ");
+        System.out.println(" }");
+        System.out.println("Max flow value: " + dinic.maxFlow() + "\n");
+
+        // unit-capacity bipartite matching
+        for (int n : new int[] { 2000, 200000 }) {
+            System.out.println("Matching, " + n + " + " + n + " vertices, " + 3 * n + " candidate pairs");
+            for (MaxFlow.Engine engine : MaxFlow.Engine.values()) {
+                if (engine == MaxFlow.Engine.FORD_FULKERSON && n > 2000)
+                    continue;
+                G = matching(n, 3, new Random(n));
+                long start = System.currentTimeMillis();
+                MaxFlow flow = MaxFlow.of(engine, G, G.V() - 2, G.V() - 1);
+                System.out.printf("  %-15s %8.0f matched in %5d ms\n", engine, flow.maxFlow(),
+                        System.currentTimeMillis() - start);
+            }
+        }
+    }
+}
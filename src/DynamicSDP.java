@@ -0,0 +1,388 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Single destination shortest paths kept up to date while edges are
+ * inserted, deleted or change weight, in the style of Ramalingam and Reps.
+ * <p>
+ * An update only touches the vertices whose distance to {@code u} changes:
+ * <ul>
+ * <li>an edge that gets shorter (or a new edge) lowers the distance of its
+ *     tail, and a Dijkstra search spreads the drop backwards from there;
+ * <li>a tree edge that gets longer (or is deleted) invalidates the subtree
+ *     of vertices whose path to {@code u} used it. Each of them is seeded
+ *     with its best edge into the rest of the tree, and a Dijkstra search
+ *     restricted to the subtree settles them again.
+ * </ul>
+ * An update to a non-tree edge that does not make it shorter costs nothing.
+ * Edge weights must be non-negative. Edges are identified by the
+ * {@link DirectedEdge} objects passed in.
+ */
+public class DynamicSDP {
+    private final int V;
+    private final int u;
+    private int E;
+    // edges entering v and edges leaving v
+    private final List<DirectedEdge>[] in;
+    private final List<DirectedEdge>[] out;
+    // distFrom[v] = minimum total weight from v to u
+    private final double[] distFrom;
+    // edgeFrom[v] = first edge on a shortest path from v to u
+    private final DirectedEdge[] edgeFrom;
+    private final IndexMinDoublePQ pq;
+    // affected[v] == update when v is in the subtree being repaired
+    private final int[] affected;
+    private int update = 0;
+    // vertices settled by the last update
+    private int settled;
+
+    /**
+     * @param G the edge-weighted digraph, copied
+     * @param u the destination vertex
+     * @throws IllegalArgumentException if an edge weight is negative
+     */
+    public DynamicSDP(EdgeWeightedDigraph G, int u) {
+        this.V = G.V();
+        this.u = u;
+        validateVertex(u);
+        in = (List<DirectedEdge>[]) new List[V];
+        out = (List<DirectedEdge>[]) new List[V];
+        for (int v = 0; v < V; v++) {
+            in[v] = new ArrayList<DirectedEdge>();
+            out[v] = new ArrayList<DirectedEdge>();
+        }
+        for (DirectedEdge e : G.edges()) {
+            validateWeight(e.weight());
+            in[e.to()].add(e);
+            out[e.from()].add(e);
+            E++;
+        }
+
+        distFrom = new double[V];
+        edgeFrom = new DirectedEdge[V];
+        affected = new int[V];
+        pq = new IndexMinDoublePQ(V);
+        for (int v = 0; v < V; v++)
+            distFrom[v] = Double.POSITIVE_INFINITY;
+        distFrom[u] = 0.0;
+        pq.insert(u, 0.0);
+        propagate();
+    }
+
+    /**
+     * @param v the vertex needs to checked
+     * @throws IllegalArgumentException if v < 0 || v >= V
+     */
+    private void validateVertex(int v) {
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("Vertex " + v + " is not between 0 and " + (V - 1));
+    }
+
+    private static void validateWeight(double weight) {
+        if (!(weight >= 0))
+            throw new IllegalArgumentException("Weight " + weight + " is negative");
+    }
+
+    /**
+     * @return the number of vertices
+     */
+    public int V() {
+        return V;
+    }
+
+    /**
+     * @return the number of edges
+     */
+    public int E() {
+        return E;
+    }
+
+    /**
+     * @param v the vertex
+     * @return the edges entering {@code v}
+     */
+    public Iterable<DirectedEdge> adj(int v) {
+        validateVertex(v);
+        return in[v];
+    }
+
+    /**
+     * Adds the edge {@code e} and repairs the distances it shortens.
+     *
+     * @param e the edge to add
+     * @throws IllegalArgumentException if the weight is negative
+     */
+    public void insertEdge(DirectedEdge e) {
+        validateVertex(e.from());
+        validateVertex(e.to());
+        validateWeight(e.weight());
+        in[e.to()].add(e);
+        out[e.from()].add(e);
+        E++;
+        settled = 0;
+        decrease(e);
+    }
+
+    /**
+     * Removes the edge {@code e} and repairs the distances that used it.
+     *
+     * @param e an edge of the graph
+     * @throws IllegalArgumentException if {@code e} is not in the graph
+     */
+    public void deleteEdge(DirectedEdge e) {
+        validateVertex(e.from());
+        validateVertex(e.to());
+        if (!in[e.to()].remove(e))
+            throw new IllegalArgumentException("Edge " + e + " is not in the graph");
+        out[e.from()].remove(e);
+        E--;
+        settled = 0;
+        if (edgeFrom[e.from()] == e)
+            increase(e.from());
+    }
+
+    /**
+     * Replaces the edge {@code e} with one of the same endpoints and a new
+     * weight, and repairs the distances.
+     *
+     * @param e      an edge of the graph
+     * @param weight the new weight
+     * @return the edge that replaces {@code e}
+     * @throws IllegalArgumentException if {@code e} is not in the graph or
+     *         the weight is negative
+     */
+    public DirectedEdge changeWeight(DirectedEdge e, double weight) {
+        validateVertex(e.from());
+        validateVertex(e.to());
+        validateWeight(weight);
+        int x = e.from();
+        int i = in[e.to()].indexOf(e);
+        if (i < 0)
+            throw new IllegalArgumentException("Edge " + e + " is not in the graph");
+        DirectedEdge f = new DirectedEdge(x, e.to(), weight);
+        in[e.to()].set(i, f);
+        out[x].set(out[x].indexOf(e), f);
+        settled = 0;
+
+        boolean tree = edgeFrom[x] == e;
+        if (tree)
+            edgeFrom[x] = f;
+        if (weight < e.weight()) {
+            if (tree) {
+                distFrom[x] = distFrom[e.to()] + weight;
+                pq.insert(x, distFrom[x]);
+                propagate();
+            }
+            else {
+                decrease(f);
+            }
+        }
+        else if (weight > e.weight() && tree) {
+            increase(x);
+        }
+        return f;
+    }
+
+    /**
+     * The edge {@code e} is new or shorter: lowers the distance of its tail
+     * if it is now a shortcut, and spreads the drop.
+     */
+    private void decrease(DirectedEdge e) {
+        int x = e.from();
+        double d = distFrom[e.to()] + e.weight();
+        if (d < distFrom[x]) {
+            distFrom[x] = d;
+            edgeFrom[x] = e;
+            pq.insert(x, d);
+            propagate();
+        }
+    }
+
+    /**
+     * The tree edge leaving {@code x} got longer or is gone: recomputes the
+     * distances of the subtree hanging from {@code x}.
+     */
+    private void increase(int x) {
+        update++;
+        // the subtree: vertices whose tree path goes through x
+        List<Integer> subtree = new ArrayList<Integer>();
+        subtree.add(x);
+        affected[x] = update;
+        for (int k = 0; k < subtree.size(); k++) {
+            int z = subtree.get(k);
+            for (DirectedEdge f : in[z]) {
+                int t = f.from();
+                if (edgeFrom[t] == f && affected[t] != update) {
+                    affected[t] = update;
+                    subtree.add(t);
+                }
+            }
+        }
+
+        // best edge from each subtree vertex into the rest of the tree
+        for (int z : subtree) {
+            distFrom[z] = Double.POSITIVE_INFINITY;
+            edgeFrom[z] = null;
+        }
+        for (int z : subtree) {
+            for (DirectedEdge f : out[z]) {
+                int h = f.to();
+                if (affected[h] != update && distFrom[h] + f.weight() < distFrom[z]) {
+                    distFrom[z] = distFrom[h] + f.weight();
+                    edgeFrom[z] = f;
+                }
+            }
+            if (distFrom[z] < Double.POSITIVE_INFINITY)
+                pq.insert(z, distFrom[z]);
+        }
+        propagate();
+    }
+
+    /**
+     * Dijkstra from the vertices on the queue, relaxing the edges entering
+     * each settled vertex.
+     */
+    private void propagate() {
+        while (!pq.isEmpty()) {
+            int z = pq.delMin();
+            settled++;
+            for (DirectedEdge f : in[z]) {
+                int t = f.from();
+                double d = distFrom[z] + f.weight();
+                if (d < distFrom[t]) {
+                    distFrom[t] = d;
+                    edgeFrom[t] = f;
+                    if (pq.contains(t)) pq.decreaseKey(t, d);
+                    else                pq.insert(t, d);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of vertices settled by the last update
+     */
+    public int settledCount() {
+        return settled;
+    }
+
+    /**
+     * Returns the length of a shortest path from vertex {@code v} to the
+     * destination {@code u}.
+     *
+     * @param v the source vertex
+     * @return Infinity if no such path from v to u
+     */
+    public double distFrom(int v) {
+        validateVertex(v);
+        return distFrom[v];
+    }
+
+    /**
+     * @param v the source vertex
+     * @return {@code true} if there is a path from {@code v} to the
+     *         destination {@code u}, and {@code false} otherwise
+     */
+    public boolean hasPathFrom(int v) {
+        validateVertex(v);
+        return distFrom[v] < Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns a shortest path from vertex {@code v} to the destination {@code u}
+     *
+     * @param v the source vertex
+     * @return the edges of the path, or {@code null} if there is no path
+     */
+    public LinkedList<DirectedEdge> pathFrom(int v) {
+        validateVertex(v);
+        if (!hasPathFrom(v))
+            return null;
+
+        LinkedList<DirectedEdge> path = new LinkedList<>();
+        for (DirectedEdge e = edgeFrom[v]; e != null; e = edgeFrom[e.to()])
+            path.add(e);
+        return path;
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        BufferedReader br = new BufferedReader(new FileReader("dijkstra.txt"));
+        EdgeWeightedDigraph G = new EdgeWeightedDigraph(br);
+        DynamicSDP sp = new DynamicSDP(G, 6);
+        System.out.printf("0 to 6 (%.2f)  ", sp.distFrom(0));
+        for (DirectedEdge e : sp.pathFrom(0))
+            System.out.print(e + "  ");
+        System.out.println();
+
+        // make the last edge of that path expensive
+        DirectedEdge last = sp.pathFrom(0).getLast();
+        sp.changeWeight(last, 5.0);
+        System.out.printf("0 to 6 (%.2f)  ", sp.distFrom(0));
+        for (DirectedEdge e : sp.pathFrom(0))
+            System.out.print(e + "  ");
+        System.out.println("  after " + last + " costs 5.00\n");
+
+        // random updates on a road-like digraph, checked against DijkstraSDP
+        int V = 100000;
+        Random random = new Random(1);
+        G = new EdgeWeightedDigraph(V);
+        List<DirectedEdge> edges = new ArrayList<DirectedEdge>();
+        for (int v = 0; v < V; v++) {
+            for (int k = 0; k < 3; k++) {
+                int w = Math.floorMod(v + random.nextInt(201) - 100, V);
+                DirectedEdge e = new DirectedEdge(v, w, 1 + random.nextDouble());
+                G.addEdge(e);
+                edges.add(e);
+            }
+        }
+        sp = new DynamicSDP(G, 0);
+
+        int updates = 2000;
+        long settled = 0;
+        long start = System.currentTimeMillis();
+        for (int k = 0; k < updates; k++) {
+            int i = random.nextInt(edges.size());
+            DirectedEdge e = edges.get(i);
+            switch (k % 4) {
+                case 0:
+                    sp.deleteEdge(e);
+                    edges.set(i, edges.get(edges.size() - 1));
+                    edges.remove(edges.size() - 1);
+                    break;
+                case 1: {
+                    DirectedEdge f = new DirectedEdge(random.nextInt(V), random.nextInt(V), 1 + random.nextDouble());
+                    sp.insertEdge(f);
+                    edges.add(f);
+                    break;
+                }
+                default:
+                    edges.set(i, sp.changeWeight(e, 1 + random.nextDouble()));
+                    break;
+            }
+            settled += sp.settledCount();
+        }
+        long time = System.currentTimeMillis() - start;
+
+        EdgeWeightedDigraph H = new EdgeWeightedDigraph(V);
+        for (DirectedEdge e : edges)
+            H.addEdge(e);
+        start = System.currentTimeMillis();
+        DijkstraSDP fresh = new DijkstraSDP(H, 0);
+        long rebuild = System.currentTimeMillis() - start;
+        boolean same = true;
+        for (int v = 0; v < V; v++)
+            same &= fresh.distFrom(v) == sp.distFrom(v);
+
+        System.out.println("V = " + V + ", E = " + sp.E() + ", " + updates + " updates");
+        System.out.printf("  DynamicSDP   %7.3f ms and %d settled vertices per update\n",
+                (double) time / updates, settled / updates);
+        System.out.printf("  DijkstraSDP  %7d ms per rebuild\n", rebuild);
+        System.out.println("  Same distances as DijkstraSDP: " + same);
+    }
+}
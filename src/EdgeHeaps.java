@@ -0,0 +1,101 @@
+/**
+ * Leftist min-heaps of edge ids {@code 0} to {@code E - 1}, keyed by edge
+ * weight, for the contractions of {@link EdmondArborescence} and
+ * {@link EdmondRoots}. A heap is named by the id at its root, -1 when
+ * empty, and every edge is in at most one heap.
+ * <p>
+ * Every node holds an offset still to be added to the keys of its whole
+ * subtree, so lowering all the keys of a heap is O(1). Merging and
+ * popping walk the right spines, O(log E).
+ */
+class EdgeHeaps {
+
+    private final double[] key;
+    private final double[] offset;
+    private final int[] left;
+    private final int[] right;
+    private final int[] rank;
+
+    /**
+     * Makes every edge a heap of its own.
+     * @param weight the weight of each edge, copied
+     */
+    EdgeHeaps(double[] weight) {
+        int E = weight.length;
+        key = weight.clone();
+        offset = new double[E];
+        left = new int[E];
+        right = new int[E];
+        rank = new int[E];
+        for (int i = 0; i < E; i++) {
+            left[i] = -1;
+            right[i] = -1;
+            rank[i] = 1;
+        }
+    }
+
+    /**
+     * Applies the pending offset of node {@code a} to its key and hands
+     * it down to its children.
+     */
+    private void push(int a) {
+        if (offset[a] != 0.0) {
+            key[a] += offset[a];
+            if (left[a] != -1)  offset[left[a]] += offset[a];
+            if (right[a] != -1) offset[right[a]] += offset[a];
+            offset[a] = 0.0;
+        }
+    }
+
+    /**
+     * Merges heaps {@code a} and {@code b}.
+     *
+     * @return the merged heap, -1 if both are empty
+     */
+    int merge(int a, int b) {
+        if (a == -1) return b;
+        if (b == -1) return a;
+        push(a);
+        push(b);
+        if (key[b] < key[a]) {
+            int x = a;
+            a = b;
+            b = x;
+        }
+        right[a] = merge(right[a], b);
+        if (left[a] == -1 || rank[left[a]] < rank[right[a]]) {
+            int x = left[a];
+            left[a] = right[a];
+            right[a] = x;
+        }
+        rank[a] = right[a] == -1 ? 1 : rank[right[a]] + 1;
+        return a;
+    }
+
+    /**
+     * @param h a non-empty heap, whose minimum is edge {@code h}
+     * @return the current key of edge {@code h}
+     */
+    double key(int h) {
+        push(h);
+        return key[h];
+    }
+
+    /**
+     * Removes the minimum, edge {@code h}, from heap {@code h}.
+     *
+     * @return the heap of the other edges, -1 if none is left
+     */
+    int pop(int h) {
+        push(h);
+        return merge(left[h], right[h]);
+    }
+
+    /**
+     * Adds {@code delta} to every key in heap {@code h}.
+     */
+    void add(int h, double delta) {
+        if (h != -1)
+            offset[h] += delta;
+    }
+}
@@ -0,0 +1,298 @@
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Reads the tokens of the {@code V / E / v w weight} text files straight
+ * from the bytes of a channel.
+ * <p>
+ * Tokens are separated by any whitespace. {@link #readInt} and
+ * {@link #readDouble} parse in place, so reading an edge creates no
+ * {@code String}: a double with at most 15 significant digits and a small
+ * exponent is one exact multiplication or division, which rounds the same
+ * way {@link Double#parseDouble} does, and anything else falls back to it.
+ * The graph classes use this reader in their {@code ReadableByteChannel}
+ * constructors. The reader does not close the channel.
+ */
+public class EdgeListReader {
+    private static final int BUFFER_BYTES = 1 << 16;
+    // the powers of ten that are exact doubles
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final ReadableByteChannel channel;
+    private final byte[] bytes = new byte[BUFFER_BYTES];
+    private final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    // unread bytes are bytes[pos .. limit)
+    private int pos;
+    private int limit;
+    private boolean eof;
+    // bytes of the current token
+    private byte[] token = new byte[64];
+    private int length;
+
+    /**
+     * @param channel the channel to read from
+     */
+    public EdgeListReader(ReadableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * @return {@code false} if only whitespace is left
+     * @throws IOException if the channel cannot be read
+     */
+    public boolean hasNext() throws IOException {
+        return skipWhitespace();
+    }
+
+    /**
+     * @return the next token as an int
+     * @throws IOException if the channel cannot be read or has no token left
+     * @throws NumberFormatException if the token is not an int
+     */
+    public int readInt() throws IOException {
+        nextToken();
+        int i = 0;
+        boolean negative = token[0] == '-';
+        if (negative || token[0] == '+')
+            i++;
+        if (i == length)
+            throw numberFormat();
+        // accumulate negatively, so Integer.MIN_VALUE fits
+        int limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+        int result = 0;
+        for (; i < length; i++) {
+            int digit = token[i] - '0';
+            if (digit < 0 || digit > 9)
+                throw numberFormat();
+            if (result < (limit + digit) / 10)
+                throw numberFormat();
+            result = result * 10 - digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * @return the next token as a double, rounded as {@link Double#parseDouble} does
+     * @throws IOException if the channel cannot be read or has no token left
+     * @throws NumberFormatException if the token is not a number
+     */
+    public double readDouble() throws IOException {
+        nextToken();
+        int i = 0;
+        boolean negative = token[0] == '-';
+        if (negative || token[0] == '+')
+            i++;
+
+        long mantissa = 0;
+        int digits = 0;     // significant digits in the mantissa
+        int scale = 0;      // power of ten the mantissa is multiplied by
+        boolean any = false;
+        boolean point = false;
+        for (; i < length; i++) {
+            int c = token[i];
+            if (c == '.' && !point) {
+                point = true;
+                continue;
+            }
+            if (c < '0' || c > '9')
+                break;
+            any = true;
+            if (mantissa == 0 && c == '0') {
+                if (point) scale--;
+                continue;
+            }
+            if (++digits > 15)
+                return slowDouble();
+            mantissa = mantissa * 10 + (c - '0');
+            if (point) scale--;
+        }
+        if (!any)
+            return slowDouble();
+        if (i < length) {
+            if (token[i] != 'e' && token[i] != 'E')
+                return slowDouble();
+            i++;
+            boolean negativeExponent = i < length && token[i] == '-';
+            if (i < length && (token[i] == '-' || token[i] == '+'))
+                i++;
+            if (i == length || length - i > 3)
+                return slowDouble();
+            int exponent = 0;
+            for (; i < length; i++) {
+                int digit = token[i] - '0';
+                if (digit < 0 || digit > 9)
+                    return slowDouble();
+                exponent = exponent * 10 + digit;
+            }
+            scale += negativeExponent ? -exponent : exponent;
+        }
+
+        double value;
+        if (mantissa == 0)            value = 0.0;
+        else if (scale == 0)          value = mantissa;
+        else if (scale > 0 && scale <= 22)  value = mantissa * POWERS_OF_TEN[scale];
+        else if (scale < 0 && scale >= -22) value = mantissa / POWERS_OF_TEN[-scale];
+        else                          return slowDouble();
+        return negative ? -value : value;
+    }
+
+    /**
+     * Vertex names of the Edmonds input files are the only tokens that
+     * become strings.
+     *
+     * @return the next token
+     * @throws IOException if the channel cannot be read or has no token left
+     */
+    public String readWord() throws IOException {
+        nextToken();
+        return new String(token, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private double slowDouble() {
+        return Double.parseDouble(new String(token, 0, length, StandardCharsets.ISO_8859_1));
+    }
+
+    private NumberFormatException numberFormat() {
+        return new NumberFormatException("For input string: \""
+                + new String(token, 0, length, StandardCharsets.UTF_8) + "\"");
+    }
+
+    /**
+     * Copies the next token into {@code token[0 .. length)}.
+     */
+    private void nextToken() throws IOException {
+        if (!skipWhitespace())
+            throw new EOFException("Unexpected end of input");
+        length = 0;
+        while (true) {
+            if (pos == limit && !fill())
+                return;
+            byte c = bytes[pos];
+            if (isWhitespace(c))
+                return;
+            if (length == token.length) {
+                byte[] copy = new byte[2 * length];
+                System.arraycopy(token, 0, copy, 0, length);
+                token = copy;
+            }
+            token[length++] = c;
+            pos++;
+        }
+    }
+
+    /**
+     * @return {@code false} if the input ends before the next token
+     */
+    private boolean skipWhitespace() throws IOException {
+        while (true) {
+            if (pos == limit && !fill())
+                return false;
+            if (!isWhitespace(bytes[pos]))
+                return true;
+            pos++;
+        }
+    }
+
+    private static boolean isWhitespace(byte c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f';
+    }
+
+    /**
+     * @return {@code false} at the end of the channel
+     */
+    private boolean fill() throws IOException {
+        if (eof)
+            return false;
+        buffer.clear();
+        int n;
+        do {
+            n = channel.read(buffer);
+        } while (n == 0);
+        if (n < 0) {
+            eof = true;
+            return false;
+        }
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        // the sample files read the same as with BufferedReader
+        boolean same;
+        try (FileChannel ch = FileChannel.open(Path.of("dijkstra.txt"))) {
+            same = new EdgeWeightedDigraph(ch).toString().equals(
+                    new EdgeWeightedDigraph(new BufferedReader(new FileReader("dijkstra.txt"))).toString());
+        }
+        try (FileChannel ch = FileChannel.open(Path.of("prim.txt"))) {
+            same &= new EdgeWeightedGraph(ch).toString().equals(
+                    new EdgeWeightedGraph(new BufferedReader(new FileReader("prim.txt"))).toString());
+        }
+        try (FileChannel ch = FileChannel.open(Path.of("fordfulkerson.txt"))) {
+            same &= new FlowNetwork(ch).toString().equals(
+                    new FlowNetwork(new BufferedReader(new FileReader("fordfulkerson.txt"))).toString());
+        }
+        try (FileChannel ch = FileChannel.open(Path.of("edmond.txt"))) {
+            same &= new EdmondEdgeWeightedDigraph(ch).toString().equals(
+                    new EdmondEdgeWeightedDigraph(new BufferedReader(new FileReader("edmond.txt"))).toString());
+        }
+        System.out.println("Same graphs as BufferedReader: " + same);
+
+        // doubles round exactly as Double.parseDouble
+        Random random = new Random(1);
+        Path text = Files.createTempFile("doubles", ".txt");
+        String[] samples = new String[100000];
+        for (int i = 0; i < samples.length; i++) {
+            switch (i % 4) {
+                case 0:  samples[i] = String.format("%.2f", random.nextDouble()); break;
+                case 1:  samples[i] = Double.toString(random.nextDouble()); break;
+                case 2:  samples[i] = Double.toString(random.nextGaussian() * Math.pow(10, random.nextInt(40) - 20)); break;
+                default: samples[i] = Integer.toString(random.nextInt()); break;
+            }
+        }
+        Files.write(text, String.join("\n", samples).getBytes(StandardCharsets.US_ASCII));
+        boolean exact = true;
+        try (FileChannel ch = FileChannel.open(text)) {
+            EdgeListReader in = new EdgeListReader(ch);
+            for (String s : samples)
+                exact &= Double.doubleToRawLongBits(in.readDouble())
+                        == Double.doubleToRawLongBits(Double.parseDouble(s));
+            exact &= !in.hasNext();
+        }
+        System.out.println("Same doubles as Double.parseDouble: " + exact + "\n");
+
+        // a million vertices and four million edges
+        int V = 1000000, E = 4 * V;
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(text))) {
+            out.println(V);
+            out.println(E);
+            for (int i = 0; i < E; i++)
+                out.printf("%d %d %.5f\n", random.nextInt(V), random.nextInt(V), random.nextDouble());
+        }
+        long start = System.currentTimeMillis();
+        new EdgeWeightedDigraph(Files.newBufferedReader(text));
+        long middle = System.currentTimeMillis();
+        try (FileChannel ch = FileChannel.open(text)) {
+            new EdgeWeightedDigraph(ch);
+        }
+        long end = System.currentTimeMillis();
+        System.out.println("V = " + V + ", E = " + E + ", " + Files.size(text) / (1 << 20) + " MB");
+        System.out.printf("  BufferedReader      %5d ms\n", middle - start);
+        System.out.printf("  ReadableByteChannel %5d ms\n", end - middle);
+        Files.delete(text);
+    }
+}
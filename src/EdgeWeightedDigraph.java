@@ -1,5 +1,6 @@
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
 import java.util.LinkedList;
 
 public class EdgeWeightedDigraph {
@@ -7,6 +8,8 @@ public class EdgeWeightedDigraph {
     private final int V;
     // number of edges
     private int E;
+    // number of calls to addEdge, for caches of results on this digraph
+    private int version;
     // outdegree of vertex v (deg+)
     private int[] outdegree;
     // list of edges entering vertex v
@@ -40,6 +43,29 @@ public class EdgeWeightedDigraph {
             addEdge(createdEdge(br.readLine().split(" ")));
     }
 
+    /**
+     * Reads the same format as {@code EdgeWeightedDigraph(BufferedReader)}
+     * straight from the bytes of a channel, without a string per line.
+     *
+     * @param channel the input channel
+     * @throws IOException an exception occurs while reading data
+     */
+    public EdgeWeightedDigraph(ReadableByteChannel channel) throws IOException {
+        this(new EdgeListReader(channel));
+    }
+
+    private EdgeWeightedDigraph(EdgeListReader in) throws IOException {
+        this(in.readInt());
+        int E = in.readInt();
+        for (int i = 0; i < E; i++) {
+            int v = in.readInt();
+            int w = in.readInt();
+            validateVertex(v);
+            validateVertex(w);
+            addEdge(new DirectedEdge(v, w, in.readDouble()));
+        }
+    }
+
     /**
      * @param G the edge weighted digraph
      */
@@ -54,6 +80,22 @@ public class EdgeWeightedDigraph {
         }
     }
 
+    /**
+     * Takes over adjacency lists that are already filled, for
+     * {@link EdgeWeightedDigraphBuilder}.
+     *
+     * @param adj       adj[w] = list of edges entering w
+     * @param outdegree outdegree[v] = number of edges leaving v
+     * @param E         the number of edges in the lists
+     */
+    EdgeWeightedDigraph(LinkedList<DirectedEdge>[] adj, int[] outdegree, int E) {
+        this.V = adj.length;
+        this.E = E;
+        this.version = E;
+        this.outdegree = outdegree;
+        this.adj = adj;
+    }
+
     /**
      * @return the number of vertices in this edge-weighted digraph
      */
@@ -107,6 +149,15 @@ public class EdgeWeightedDigraph {
         adj[w].add(e);
         outdegree[v]++;
         E++;
+        version++;
+    }
+
+    /**
+     * @return a number that changes every time an edge is added, so results
+     *         computed for one version can tell when they are stale
+     */
+    public int version() {
+        return version;
     }
 
     /**
@@ -0,0 +1,369 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Builds an {@link EdgeWeightedDigraph} from chunks of edges with several
+ * threads.
+ * <p>
+ * Loader threads hand over chunks of parallel {@code from}/{@code to}/
+ * {@code weight} arrays with {@link #addEdges}, which only records the
+ * chunk and may be called from any thread. {@link #build} then works over a
+ * {@link ForkJoinPool} in three passes over all edges:
+ * <ol>
+ * <li>count the indegree and outdegree of every vertex in
+ *     {@link AtomicIntegerArray}s,</li>
+ * <li>turn the indegrees into the start of each adjacency list with a
+ *     prefix sum, and scatter the index of every edge into the slot of its
+ *     head vertex, claimed with an atomic increment,</li>
+ * <li>sort the indices of each vertex, which undoes the races of the
+ *     scatter, and create its {@link DirectedEdge}s and list.</li>
+ * </ol>
+ * The digraph is the one {@code addEdge} would build from the chunks in
+ * the order they were added, with the same list order, so
+ * {@link DijkstraSDP}, {@link BellmanFordSDP} and
+ * {@link EdgeWeightedDirectedCycle} give the same answers on it. The
+ * builder shares nothing with the digraph it returns.
+ */
+public class EdgeWeightedDigraphBuilder {
+    // edges or vertices below this many are run in one task
+    private static final int SEQUENTIAL_EDGES = 1 << 14;
+    private static final int SEQUENTIAL_VERTICES = 1 << 12;
+
+    private final int V;
+    // chunks in the order they were added
+    private final ArrayList<Chunk> chunks = new ArrayList<>();
+    private long E;
+
+    /**
+     * @param V the number of vertices of the digraph
+     * @throws IllegalArgumentException if {@code V < 0}
+     */
+    public EdgeWeightedDigraphBuilder(int V) {
+        if (V < 0)
+            throw new IllegalArgumentException("Number of vertices is negative");
+        this.V = V;
+    }
+
+    /**
+     * Adds the edges {@code from[i]->to[i]} of weight {@code weight[i]}.
+     * The arrays are kept, not copied, and must not change until
+     * {@link #build} returns. Thread-safe.
+     *
+     * @param from   the tail of each edge
+     * @param to     the head of each edge
+     * @param weight the weight of each edge
+     * @throws IllegalArgumentException if the arrays differ in length or
+     *         the edges would be more than {@code Integer.MAX_VALUE}
+     */
+    public synchronized void addEdges(int[] from, int[] to, double[] weight) {
+        if (from.length != to.length || from.length != weight.length)
+            throw new IllegalArgumentException("Edge arrays differ in length");
+        if (E + from.length > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Too many edges for an EdgeWeightedDigraph");
+        chunks.add(new Chunk(from, to, weight, (int) E));
+        E += from.length;
+    }
+
+    /**
+     * @return the number of vertices
+     */
+    public int V() {
+        return V;
+    }
+
+    /**
+     * @return the number of edges added so far
+     */
+    public synchronized int E() {
+        return (int) E;
+    }
+
+    /**
+     * Builds the digraph with one worker per core.
+     *
+     * @return the digraph of every edge added so far
+     * @throws IllegalArgumentException if an edge has an endpoint outside 0..V-1
+     */
+    public EdgeWeightedDigraph build() {
+        return build(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parallelism the number of worker threads
+     * @return the digraph of every edge added so far
+     * @throws IllegalArgumentException if an edge has an endpoint outside
+     *         0..V-1 or {@code parallelism < 1}
+     */
+    public EdgeWeightedDigraph build(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive");
+        Chunk[] c;
+        synchronized (this) {
+            c = chunks.toArray(new Chunk[0]);
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return new Build(c).run(pool);
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * One chunk of edges; {@code base} is the index of its first edge
+     * among all edges added.
+     */
+    private static class Chunk {
+        private final int[] from;
+        private final int[] to;
+        private final double[] weight;
+        private final int base;
+
+        private Chunk(int[] from, int[] to, double[] weight, int base) {
+            this.from = from;
+            this.to = to;
+            this.weight = weight;
+            this.base = base;
+        }
+    }
+
+    /**
+     * The arrays of one call to {@link #build}.
+     */
+    private class Build {
+        private final Chunk[] chunks;
+        private final int E;
+        // degrees, and once counted, the next free slot of each vertex
+        private final AtomicIntegerArray indegree;
+        private final AtomicIntegerArray outdegree;
+        private final AtomicIntegerArray next;
+        // edges entering w: slot[off[w]] .. slot[off[w + 1] - 1] are edge indices
+        private final int[] off;
+        private final int[] slot;
+        private final LinkedList<DirectedEdge>[] adj;
+
+        private Build(Chunk[] chunks) {
+            this.chunks = chunks;
+            int n = 0;
+            for (Chunk c : chunks)
+                n += c.from.length;
+            this.E = n;
+            indegree = new AtomicIntegerArray(V);
+            outdegree = new AtomicIntegerArray(V);
+            next = new AtomicIntegerArray(V);
+            off = new int[V + 1];
+            slot = new int[E];
+            adj = (LinkedList<DirectedEdge>[]) new LinkedList[V];
+        }
+
+        private EdgeWeightedDigraph run(ForkJoinPool pool) {
+            pool.invoke(new Edges(this, 0, E, false));
+            for (int v = 0; v < V; v++) {
+                off[v + 1] = off[v] + indegree.get(v);
+                next.set(v, off[v]);
+            }
+            pool.invoke(new Edges(this, 0, E, true));
+            pool.invoke(new Vertices(this, 0, V));
+
+            int[] out = new int[V];
+            for (int v = 0; v < V; v++)
+                out[v] = outdegree.get(v);
+            return new EdgeWeightedDigraph(adj, out, E);
+        }
+
+        /**
+         * Counts the degrees of edges lo..hi-1, or scatters them.
+         */
+        private void edges(int lo, int hi, boolean scatter) {
+            // last chunk whose first edge is at most lo
+            int k = 0;
+            for (int a = 0, b = chunks.length - 1; a <= b; ) {
+                int mid = (a + b) >>> 1;
+                if (chunks[mid].base <= lo) { k = mid; a = mid + 1; }
+                else                          b = mid - 1;
+            }
+            for (int i = lo; i < hi; k++) {
+                Chunk c = chunks[k];
+                int end = Math.min(hi, c.base + c.from.length);
+                for (; i < end; i++) {
+                    int w = c.to[i - c.base];
+                    if (scatter) {
+                        slot[next.getAndIncrement(w)] = i;
+                        continue;
+                    }
+                    int v = c.from[i - c.base];
+                    validateVertex(v);
+                    validateVertex(w);
+                    outdegree.getAndIncrement(v);
+                    indegree.getAndIncrement(w);
+                }
+            }
+        }
+
+        /**
+         * Fills the adjacency lists of vertices lo..hi-1 in edge order.
+         */
+        private void vertices(int lo, int hi) {
+            for (int w = lo; w < hi; w++) {
+                Arrays.sort(slot, off[w], off[w + 1]);
+                LinkedList<DirectedEdge> list = new LinkedList<>();
+                int k = 0;
+                for (int s = off[w]; s < off[w + 1]; s++) {
+                    int i = slot[s];
+                    while (k + 1 < chunks.length && chunks[k + 1].base <= i)
+                        k++;
+                    Chunk c = chunks[k];
+                    int j = i - c.base;
+                    list.add(new DirectedEdge(c.from[j], c.to[j], c.weight[j]));
+                }
+                adj[w] = list;
+            }
+        }
+    }
+
+    /**
+     * Splits a range of edges in half until it is small enough to run.
+     */
+    private static class Edges extends RecursiveAction {
+        private final Build build;
+        private final int lo;
+        private final int hi;
+        private final boolean scatter;
+
+        private Edges(Build build, int lo, int hi, boolean scatter) {
+            this.build = build;
+            this.lo = lo;
+            this.hi = hi;
+            this.scatter = scatter;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= SEQUENTIAL_EDGES) {
+                build.edges(lo, hi, scatter);
+            }
+            else {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Edges(build, lo, mid, scatter), new Edges(build, mid, hi, scatter));
+            }
+        }
+    }
+
+    /**
+     * Splits a range of vertices in half until it is small enough to run.
+     */
+    private static class Vertices extends RecursiveAction {
+        private final Build build;
+        private final int lo;
+        private final int hi;
+
+        private Vertices(Build build, int lo, int hi) {
+            this.build = build;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= SEQUENTIAL_VERTICES) {
+                build.vertices(lo, hi);
+            }
+            else {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Vertices(build, lo, mid), new Vertices(build, mid, hi));
+            }
+        }
+    }
+
+    /**
+     * @param v the vertex
+     */
+    private void validateVertex(int v) {
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException(v + " is not between 0 and " + (V - 1));
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        // dijkstra.txt as one chunk
+        EdgeListReader in = new EdgeListReader(FileChannel.open(Path.of("dijkstra.txt")));
+        int n = in.readInt();
+        int m = in.readInt();
+        int[] from = new int[m], to = new int[m];
+        double[] weight = new double[m];
+        for (int i = 0; i < m; i++) {
+            from[i] = in.readInt();
+            to[i] = in.readInt();
+            weight[i] = in.readDouble();
+        }
+        EdgeWeightedDigraphBuilder builder = new EdgeWeightedDigraphBuilder(n);
+        builder.addEdges(from, to, weight);
+        EdgeWeightedDigraph G = builder.build();
+        EdgeWeightedDigraph expected = new EdgeWeightedDigraph(new BufferedReader(new FileReader("dijkstra.txt")));
+        System.out.println("Same digraph as addEdge: " + G.toString().equals(expected.toString()));
+        DijkstraSDP sdp = new DijkstraSDP(G, 6);
+        System.out.printf("DijkstraSDP 0 to 6 (%.2f)  ", sdp.distFrom(0));
+        for (DirectedEdge e : sdp.pathFrom(0))
+            System.out.print(e + "  ");
+        System.out.println();
+        System.out.printf("BellmanFordSDP 0 to 6 (%.2f)\n", new BellmanFordSDP(G, 6).distFrom(0));
+        System.out.println("EdgeWeightedDirectedCycle " + new EdgeWeightedDirectedCycle(G).cycle());
+        System.out.println();
+
+        // 8 loader threads, 64 chunks of random edges
+        int V = 1_000_000, chunks = 64, perChunk = 100_000;
+        builder = new EdgeWeightedDigraphBuilder(V);
+        Thread[] loaders = new Thread[8];
+        for (int t = 0; t < loaders.length; t++) {
+            int first = t;
+            EdgeWeightedDigraphBuilder b = builder;
+            loaders[t] = new Thread(() -> {
+                for (int c = first; c < chunks; c += loaders.length) {
+                    Random random = new Random(c);
+                    int[] f = new int[perChunk], w = new int[perChunk];
+                    double[] x = new double[perChunk];
+                    for (int i = 0; i < perChunk; i++) {
+                        f[i] = random.nextInt(V);
+                        w[i] = random.nextInt(V);
+                        x[i] = random.nextDouble();
+                    }
+                    b.addEdges(f, w, x);
+                }
+            });
+            loaders[t].start();
+        }
+        for (Thread t : loaders)
+            t.join();
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("V = " + V + ", E = " + builder.E() + ", " + cores + " cores");
+        long start = System.currentTimeMillis();
+        EdgeWeightedDigraph one = builder.build(1);
+        System.out.println("  build, 1 thread    " + (System.currentTimeMillis() - start) + " ms");
+        start = System.currentTimeMillis();
+        EdgeWeightedDigraph all = builder.build(cores);
+        System.out.println("  build, " + cores + " threads   " + (System.currentTimeMillis() - start) + " ms");
+        boolean same = one.E() == all.E();
+        for (int v = 0; v < V && same; v++) {
+            same = one.outdegree(v) == all.outdegree(v) && one.indegree(v) == all.indegree(v);
+            Iterator<DirectedEdge> a = one.adj(v).iterator(), b = all.adj(v).iterator();
+            while (same && a.hasNext()) {
+                DirectedEdge e = a.next(), f = b.next();
+                same = e.from() == f.from() && e.weight() == f.weight();
+            }
+        }
+        System.out.println("  Same digraph: " + same);
+    }
+}
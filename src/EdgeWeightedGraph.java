@@ -1,5 +1,6 @@
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
 import java.util.LinkedList;
 
 public class EdgeWeightedGraph {
@@ -41,6 +42,29 @@ public class EdgeWeightedGraph {
             addEdge(createdEdge(br.readLine().split(" ")));
     }
 
+    /**
+     * Initializes an edge-weighted graph from the bytes of a channel, in
+     * the same format and without a string per line.
+     *
+     * @param channel the input channel
+     * @throws IOException an exception occurs while reading data
+     */
+    public EdgeWeightedGraph(ReadableByteChannel channel) throws IOException {
+        this(new EdgeListReader(channel));
+    }
+
+    private EdgeWeightedGraph(EdgeListReader in) throws IOException {
+        this(in.readInt());
+        int E = in.readInt();
+        for (int i = 0; i < E; i++) {
+            int v = in.readInt();
+            int w = in.readInt();
+            validateVertex(v);
+            validateVertex(w);
+            addEdge(new Edge(v, w, in.readDouble()));
+        }
+    }
+
     /**
      * Initializes a new edge-weighted graph that is a deep copy of {@code G}.
      *
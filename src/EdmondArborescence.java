@@ -0,0 +1,390 @@
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A minimum spanning arborescence rooted at {@code root}: the cheapest set
+ * of edges with exactly one edge into every other vertex and a path from
+ * the root to each of them. It is the tree {@link EdmondMST} finds, by
+ * Tarjan's O(E log V) form of the Chu-Liu/Edmonds algorithm.
+ * <p>
+ * The engine works on vertex ids {@code 0} to {@code V - 1} and edge
+ * ids into parallel arrays. A {@link EdmondEdgeWeightedDigraph} is read
+ * once into them, through a name to id dictionary that is kept only to
+ * translate results back. The edges entering each vertex are one of
+ * the {@link EdgeHeaps}, where lowering every weight of a heap is O(1)
+ * and merging two heaps is O(log E). Contracted cycles are sets of a
+ * union-find with union by size and no path compression, so each union
+ * can be rolled back to expand the cycles again at the end.
+ * <p>
+ * Every vertex picks its cheapest entering edge in turn, following the
+ * picks back towards the root. When a pick closes a cycle, the cycle is
+ * merged into one vertex whose heap is the union of the heaps of its
+ * members, each lowered by the weight of the edge that member picked.
+ * Expanding the cycles in reverse order then keeps the edge that enters
+ * each cycle from outside and the cycle edges into every other member.
+ */
+public class EdmondArborescence {
+
+    private final int V;
+    private final int root;
+    private final double weight;       // weight of the arborescence
+    private final int[] edgeTo;        // edgeTo[v] = id of the chosen edge into v
+
+    // edges as parallel arrays
+    private final int[] from;
+    private final int[] to;
+    private final double[] w;
+
+    // name <-> id dictionary; edge objects when read from a graph
+    private final String[] names;
+    private final HashMap<String, Integer> ids;
+    private final EdmondEdge[] edges;
+
+    // union-find with rollback
+    private int[] parent;
+    private int[] size;
+    private int[] joined;
+    private int joins;
+
+    /**
+     * Computes a minimum spanning arborescence of {@code G} rooted at the
+     * vertex named {@code root}.
+     * @param G    the edge-weighted digraph
+     * @param root the name of the root vertex
+     * @throws IllegalArgumentException if {@code root} is not in {@code G}
+     * @throws IllegalArgumentException if some vertex cannot be reached
+     *         from {@code root}
+     */
+    public EdmondArborescence(EdmondEdgeWeightedDigraph G, String root) {
+        V = G.V();
+        names = new String[V];
+        ids = new HashMap<String, Integer>();
+        for (Vertex v : G.vertices()) {
+            names[ids.size()] = v.toString();
+            ids.put(v.toString(), ids.size());
+        }
+        if (!ids.containsKey(root))
+            throw new IllegalArgumentException("Vertex " + root + " is not in graph");
+        this.root = ids.get(root);
+
+        int E = G.E();
+        from = new int[E];
+        to = new int[E];
+        w = new double[E];
+        edges = new EdmondEdge[E];
+        int i = 0;
+        for (EdmondEdge e : G.edges()) {
+            from[i] = ids.get(e.from().toString());
+            to[i] = ids.get(e.to().toString());
+            w[i] = e.weight();
+            edges[i++] = e;
+        }
+        edgeTo = new int[V];
+        weight = solve();
+    }
+
+    /**
+     * Computes a minimum spanning arborescence rooted at {@code root} of
+     * the digraph on vertices {@code 0} to {@code V - 1} whose edge
+     * {@code i} goes from {@code from[i]} to {@code to[i]} with weight
+     * {@code weight[i]}. The arrays are not kept.
+     * @param V      the number of vertices
+     * @param from   the tail of each edge
+     * @param to     the head of each edge
+     * @param weight the weight of each edge
+     * @param root   the root vertex
+     * @throws IllegalArgumentException if the arrays differ in length, a
+     *         vertex is not between 0 and {@code V - 1}, or a weight is
+     *         negative or NaN
+     * @throws IllegalArgumentException if some vertex cannot be reached
+     *         from {@code root}
+     */
+    public EdmondArborescence(int V, int[] from, int[] to, double[] weight, int root) {
+        if (from.length != to.length || from.length != weight.length)
+            throw new IllegalArgumentException("Edge arrays must have the same length");
+        this.V = V;
+        this.names = null;
+        this.ids = null;
+        this.edges = null;
+        this.from = from.clone();
+        this.to = to.clone();
+        this.w = weight.clone();
+        validateVertex(root);
+        for (int i = 0; i < from.length; i++) {
+            validateVertex(from[i]);
+            validateVertex(to[i]);
+            if (weight[i] < 0)
+                throw new IllegalArgumentException("Weight is < 0");
+            if (Double.isNaN(weight[i]))
+                throw new IllegalArgumentException("Weight is NaN");
+        }
+        this.root = root;
+        edgeTo = new int[V];
+        this.weight = solve();
+    }
+
+    /**
+     * Runs the contractions and expands the cycles again, filling
+     * {@code edgeTo}.
+     *
+     * @return the total weight of the chosen edges
+     */
+    private double solve() {
+        int E = from.length;
+        EdgeHeaps heaps = new EdgeHeaps(w);
+        parent = new int[V];
+        size = new int[V];
+        joined = new int[V];
+        for (int v = 0; v < V; v++) {
+            parent[v] = v;
+            size[v] = 1;
+        }
+
+        // the entering edges of each vertex, self loops left out
+        int[] heap = new int[V];
+        for (int v = 0; v < V; v++)
+            heap[v] = -1;
+        for (int i = 0; i < E; i++) {
+            if (from[i] != to[i])
+                heap[to[i]] = heaps.merge(heap[to[i]], i);
+        }
+
+        int[] seen = new int[V];
+        int[] path = new int[V];
+        int[] picked = new int[V];
+        for (int v = 0; v < V; v++) {
+            seen[v] = -1;
+            edgeTo[v] = -1;
+        }
+        seen[root] = root;
+
+        // contracted cycles, newest last: the vertex they became, the
+        // number of unions before, and their edges in cycleEdges
+        List<int[]> cycles = new ArrayList<int[]>();
+        int[] cycleEdges = new int[V];
+        int cycleEdgesSize = 0;
+
+        for (int s = 0; s < V; s++) {
+            int u = s, n = 0;
+            while (seen[u] < 0) {
+                if (heap[u] == -1)
+                    throw new IllegalArgumentException("Vertex " + name(s) + " cannot be reached from the root");
+                int e = heap[u];
+                double min = heaps.key(e);
+                heap[u] = heaps.pop(e);
+                heaps.add(heap[u], -min);
+                picked[n] = e;
+                path[n++] = u;
+                seen[u] = s;
+                u = find(from[e]);
+                if (seen[u] == s) {
+                    // the picks from u round to u are a cycle: contract it
+                    int end = n, before = joins, x;
+                    int cycle = -1;
+                    do {
+                        x = path[--n];
+                        cycle = heaps.merge(cycle, heap[x]);
+                    } while (union(u, x));
+                    u = find(u);
+                    heap[u] = cycle;
+                    seen[u] = -1;
+                    if (cycleEdgesSize + end - n > cycleEdges.length)
+                        cycleEdges = Arrays.copyOf(cycleEdges, 2 * (cycleEdgesSize + end - n));
+                    cycles.add(new int[] { u, before, cycleEdgesSize, cycleEdgesSize + end - n });
+                    for (int k = n; k < end; k++)
+                        cycleEdges[cycleEdgesSize++] = picked[k];
+                }
+            }
+            for (int k = 0; k < n; k++)
+                edgeTo[find(to[picked[k]])] = picked[k];
+        }
+
+        // expand the cycles, newest first
+        for (int c = cycles.size() - 1; c >= 0; c--) {
+            int[] cycle = cycles.get(c);
+            rollback(cycle[1]);
+            int entering = edgeTo[cycle[0]];
+            for (int k = cycle[2]; k < cycle[3]; k++)
+                edgeTo[find(to[cycleEdges[k]])] = cycleEdges[k];
+            edgeTo[find(to[entering])] = entering;
+        }
+
+        double total = 0.0;
+        for (int v = 0; v < V; v++) {
+            if (v != root)
+                total += w[edgeTo[v]];
+        }
+        parent = size = joined = null;
+        return total;
+    }
+
+    private int find(int v) {
+        while (parent[v] != v)
+            v = parent[v];
+        return v;
+    }
+
+    /**
+     * Joins the sets of {@code v} and {@code w}.
+     *
+     * @return {@code false} if they were one set already
+     */
+    private boolean union(int v, int w) {
+        v = find(v);
+        w = find(w);
+        if (v == w)
+            return false;
+        if (size[v] < size[w]) {
+            int x = v;
+            v = w;
+            w = x;
+        }
+        parent[w] = v;
+        size[v] += size[w];
+        joined[joins++] = w;
+        return true;
+    }
+
+    /**
+     * Undoes the unions after the first {@code count}.
+     */
+    private void rollback(int count) {
+        while (joins > count) {
+            int w = joined[--joins];
+            size[parent[w]] -= size[w];
+            parent[w] = w;
+        }
+    }
+
+    /**
+     * Returns the edges of the arborescence, one into every vertex but the
+     * root. They are the edges of the graph it was computed from, or new
+     * edges between vertices named by their ids.
+     *
+     * @return the edges of the arborescence
+     */
+    public Iterable<EdmondEdge> edges() {
+        List<EdmondEdge> list = new ArrayList<EdmondEdge>();
+        for (int v = 0; v < V; v++) {
+            int i = edgeTo[v];
+            if (i == -1)
+                continue;
+            if (edges != null)
+                list.add(edges[i]);
+            else
+                list.add(new EdmondEdge(new Vertex(name(from[i])), new Vertex(name(to[i])), w[i]));
+        }
+        return list;
+    }
+
+    /**
+     * Returns the sum of the edge weights of the arborescence.
+     *
+     * @return the sum of the edge weights of the arborescence
+     */
+    public double weight() {
+        return weight;
+    }
+
+    /**
+     * @param v the vertex
+     * @return the id of the edge of the arborescence into {@code v}, -1
+     *         for the root
+     */
+    public int edgeTo(int v) {
+        validateVertex(v);
+        return edgeTo[v];
+    }
+
+    /**
+     * @return the number of vertices
+     */
+    public int V() {
+        return V;
+    }
+
+    /**
+     * @param name the name of a vertex
+     * @return the id of the vertex, -1 if there is none
+     */
+    public int index(String name) {
+        if (ids == null)
+            return -1;
+        Integer v = ids.get(name);
+        return v == null ? -1 : v;
+    }
+
+    /**
+     * @param v the vertex
+     * @return the name of vertex {@code v}, its id when it has no name
+     */
+    public String name(int v) {
+        validateVertex(v);
+        return names == null ? String.valueOf(v) : names[v];
+    }
+
+    /**
+     * @param v the vertex need to check
+     */
+    private void validateVertex(int v) {
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("Vertex " + v + " is not between 0 and " + (V-1));
+    }
+
+    public static void main(String[] args) throws IOException, FileNotFoundException {
+
+        BufferedReader br = new BufferedReader(new FileReader("edmond.txt"));
+        EdmondEdgeWeightedDigraph G = new EdmondEdgeWeightedDigraph(br);
+        EdmondArborescence arborescence = new EdmondArborescence(G, "r");
+        System.out.println("Edge of MST:");
+        for (EdmondEdge e : arborescence.edges())
+            System.out.println(e);
+        System.out.printf("Weight: %.2f, EdmondMST: %.2f\n\n", arborescence.weight(),
+                new EdmondMST(G, "r").weight());
+
+        // random digraphs with a path r -> v1 -> v2 -> ... so every vertex is reachable
+        Random random = new Random(1);
+        for (int n : new int[] { 200, 1000 }) {
+            G = new EdmondEdgeWeightedDigraph();
+            Vertex[] vertices = new Vertex[n];
+            vertices[0] = new Vertex("r");
+            for (int v = 1; v < n; v++) {
+                vertices[v] = new Vertex("v" + v);
+                G.addEdge(new EdmondEdge(vertices[v - 1], vertices[v], 1000));
+            }
+            for (int k = 0; k < 10 * n; k++)
+                G.addEdge(new EdmondEdge(vertices[random.nextInt(n)], vertices[random.nextInt(n)],
+                        random.nextInt(1000)));
+
+            long start = System.currentTimeMillis();
+            arborescence = new EdmondArborescence(G, "r");
+            long tarjan = System.currentTimeMillis() - start;
+            start = System.currentTimeMillis();
+            EdmondMST mst = new EdmondMST(G, "r");
+            long edmond = System.currentTimeMillis() - start;
+            System.out.printf("%d vertices, %d edges\n", G.V(), G.E());
+            System.out.printf("  EdmondArborescence %12.2f %6d ms\n", arborescence.weight(), tarjan);
+            System.out.printf("  EdmondMST          %12.2f %6d ms\n", mst.weight(), edmond);
+        }
+
+        int V = 1000000, E = 5 * V;
+        int[] from = new int[E], to = new int[E];
+        double[] weight = new double[E];
+        for (int i = 0; i < E; i++) {
+            from[i] = i < V - 1 ? i : random.nextInt(V);
+            to[i] = i < V - 1 ? i + 1 : random.nextInt(V);
+            weight[i] = i < V - 1 ? 1000 : random.nextInt(1000);
+        }
+        long start = System.currentTimeMillis();
+        arborescence = new EdmondArborescence(V, from, to, weight, 0);
+        System.out.printf("%d vertices, %d edges by id\n  EdmondArborescence %12.2f %6d ms\n",
+                V, E, arborescence.weight(), System.currentTimeMillis() - start);
+    }
+}
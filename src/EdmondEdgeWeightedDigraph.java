@@ -2,6 +2,7 @@ import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.TreeMap;
@@ -42,6 +43,28 @@ public class EdmondEdgeWeightedDigraph {
         }
     }
 
+    /**
+     * Initialize the graph by reading the same data from a channel, with
+     * no string array per line
+     * 
+     * @param channel the input channel
+     * @throws IOException 
+     */
+    public EdmondEdgeWeightedDigraph(ReadableByteChannel channel) 
+        throws IOException {
+        this();
+        EdgeListReader in = new EdgeListReader(channel);
+        int tE = in.readInt();
+
+        for (int i = 0; i < tE; i++) {
+            Vertex v = new Vertex(in.readWord());
+            Vertex w = new Vertex(in.readWord());
+            double weight = in.readDouble();
+
+            addEdge(new EdmondEdge(v, w, weight));
+        }
+    }
+
     /**
      * Initialize a graph by copying data from another graph
      */
@@ -3,16 +3,32 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayDeque;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Queue;
 import java.util.TreeMap;
 
+/**
+ * Minimum spanning arborescence by the Chu-Liu/Edmonds algorithm: every
+ * vertex but the root picks its cheapest entering edge, and while the
+ * picks close cycles, each cycle is contracted into a super-node, the
+ * weight of every remaining edge is lowered by the weight of the edge its
+ * head picked, and the picks are made again.
+ * <p>
+ * Vertex names are read once into ids. Super-nodes are sets of a
+ * {@link UF}, so which super-node owns a vertex is one {@code find}, and
+ * a round relabels the edges in place instead of building a new graph:
+ * edge {@code i} keeps its index through every round, with its current
+ * endpoints in {@code from[i]} and {@code to[i]} and its lowered weight
+ * in {@code w[i]}. Each round contracts every cycle among the picks.
+ * Expanding the rounds from the last one keeps, in every cycle, the
+ * picks into all members but the one the edge into the cycle enters.
+ */
 public class EdmondMST {
 
     private double weight;                              // weight of MST
     private Queue<EdmondEdge> mst = new ArrayDeque<>(); // edges in MST
-    private TreeMap<Vertex, EdmondEdge> edgeTo;         // canh co weight nho nhat di vao w
 
     /**
      * Compute a minimum spanning tree (or forest) of an edge-weighted graph.
@@ -20,72 +36,147 @@ public class EdmondMST {
      */
     public EdmondMST(EdmondEdgeWeightedDigraph G, String root) {
         Vertex r = new Vertex(root);
-        edgeTo   = new TreeMap<>();
         if (!G.contains(r)) 
             throw new IllegalArgumentException("Vertex " + root + " is not in graph");
-        EdmondEdgeWeightedDigraph temp_mst = new EdmondEdgeWeightedDigraph();
-        
-        //chon cac canh di den dinh w be nhat tru node goc
-        for (Vertex w : G.vertices()) {
-            if (w.equals(r)) continue;
-            EdmondEdge min_edge = new EdmondEdge(w, w,Double.MAX_VALUE);
-            for (EdmondEdge e : G.reAdj(w)) {
-                if (e.weight() < min_edge.weight()) min_edge = e;
-            }
-            //khong the tao mst
-            if (min_edge.weight() == Double.MAX_VALUE) 
-                throw new IllegalArgumentException("Cannot create minium spainning tree");
-            edgeTo.put(w, min_edge);
-            temp_mst.addEdge(min_edge);
+
+        // vertex ids, and the edges as arrays relabelled every round
+        int V = G.V(), E = G.E();
+        TreeMap<Vertex, Integer> ids = new TreeMap<>();
+        for (Vertex v : G.vertices())
+            ids.put(v, ids.size());
+        int rt = ids.get(r);
+        EdmondEdge[] edges = new EdmondEdge[E];
+        int[] from = new int[E], to = new int[E];
+        double[] w = new double[E];
+        // edges still between two super-nodes, and not into the root
+        int[] alive = new int[E];
+        int n = 0, i = 0;
+        for (EdmondEdge e : G.edges()) {
+            edges[i] = e;
+            from[i] = ids.get(e.from());
+            to[i] = ids.get(e.to());
+            w[i] = e.weight();
+            if (from[i] != to[i] && to[i] != rt)
+                alive[n++] = i;
+            i++;
         }
-        
-        //check cycle
-        EdmondEdgeWeightedDirectedCycle cycle = new EdmondEdgeWeightedDirectedCycle(temp_mst);
-        //co cycle
-        if (cycle.hasCycle()) {
+
+        UF uf = new UF(V);
+        int[] minIn = new int[V];       // cheapest edge into each super-node
+        double[] minWeight = new double[V];
+        int[] seen = new int[V];
+        boolean[] present = new boolean[V];
+        boolean[] inCycle = new boolean[V];
+        // per contracting round: the picks in cycles and the edges into
+        // cycles, each as (edge, member it enters) pairs
+        List<int[]> cycleEdges = new ArrayList<>();
+        List<int[]> entering = new ArrayList<>();
+        for (int v = 0; v < V; v++)
+            present[v] = true;
+
+        while (true) {
+            //chon cac canh di den dinh w be nhat tru node goc
+            for (int v = 0; v < V; v++)
+                minIn[v] = -1;
+            for (int k = 0; k < n; k++) {
+                int e = alive[k];
+                if (minIn[to[e]] == -1 || w[e] < w[minIn[to[e]]])
+                    minIn[to[e]] = e;
+            }
+            for (int v = 0; v < V; v++) {
+                //khong the tao mst
+                if (present[v] && v != rt && minIn[v] == -1)
+                    throw new IllegalArgumentException("Cannot create minium spainning tree");
+            }
+
+            //check cycle: follow the picks back from every super-node
+            int[] cycle = new int[2 * V];
+            int c = 0;
+            for (int v = 0; v < V; v++)
+                seen[v] = -1;
+            for (int v = 0; v < V; v++) {
+                if (!present[v] || v == rt) continue;
+                int x = v;
+                while (x != rt && seen[x] == -1) {
+                    seen[x] = v;
+                    x = from[minIn[x]];
+                }
+                if (x == rt || seen[x] != v) continue;
+                int y = x;
+                do {
+                    inCycle[y] = true;
+                    cycle[c++] = minIn[y];
+                    cycle[c++] = y;
+                    y = from[minIn[y]];
+                } while (y != x);
+            }
+            if (c == 0) break;
+
             //create super node
-            List<Vertex> bag = new LinkedList<>();
-            for (Vertex v : cycle.v_cycle()) {
-                bag.add(v);
+            for (int k = 0; k < c; k += 2)
+                uf.union(cycle[k + 1], from[cycle[k]]);
+            cycleEdges.add(Arrays.copyOf(cycle, c));
+
+            //create E': relabel the edges in place
+            for (int v = 0; v < V; v++) {
+                if (minIn[v] != -1)
+                    minWeight[v] = w[minIn[v]];
             }
-            Vertex s_node = new Vertex(bag);
-            //create G'
-            EdmondEdgeWeightedDigraph temp_G = new EdmondEdgeWeightedDigraph();
-            for (EdmondEdge e : G.edges()) {
-                Vertex v = e.from();
-                Vertex w = e.to();
-                if (s_node.contains(v)) v = s_node;
-                if (s_node.contains(w)) w = s_node;
-                if (v == w) continue;
-                if (w.equals(r)) continue;
-                //create E'
+            int[] into = new int[16];
+            int m = 0, alive2 = 0;
+            for (int k = 0; k < n; k++) {
+                int e = alive[k];
+                int x = uf.find(from[e]);
+                int y = uf.find(to[e]);
+                if (x == y || y == rt) continue;
                 // tru vi dang xet voi do thi ban dau
-                EdmondEdge temp_e = new EdmondEdge(v, w, e.weight() - edgeTo.get(e.to()).weight());
-                temp_e.setParentEdge(e);
-                temp_G.addEdge(temp_e);
+                w[e] = w[e] - minWeight[to[e]];
+                if (inCycle[to[e]]) {
+                    if (m + 2 > into.length) into = Arrays.copyOf(into, 2 * into.length);
+                    into[m++] = e;
+                    into[m++] = to[e];
+                }
+                alive[alive2++] = e;
             }
-            // create mst
-            edgeTo = new TreeMap<>();
-            // gọi dep quy
-            EdmondMST mini = new EdmondMST(temp_G, root);
-            for (EdmondEdge e : mini.edges()) {
-                edgeTo.put(e.parentEdge().to(), e.parentEdge());
-                mst.add(e.parentEdge());
-                weight += e.parentEdge().weight();
+            entering.add(Arrays.copyOf(into, m));
+            // the heads move only now, once no weight needs their old label;
+            // every super-node stays present, with edges left or not, so
+            // one that nothing enters any more still fails the check
+            for (int v = 0; v < V; v++) {
+                present[v] = uf.find(v) == v;
+                inCycle[v] = false;
             }
-            for (EdmondEdge e : cycle.cycle()) {
-                //khong lay cac canh da chon khi co lai
-                if (!edgeTo.containsKey(e.to())) {
-                    edgeTo.put(e.to(),e);
-                    mst.add(e);
-                    weight += e.weight();
-                }
+            n = alive2;
+            for (int k = 0; k < n; k++) {
+                int e = alive[k];
+                from[e] = uf.find(from[e]);
+                to[e] = uf.find(to[e]);
+            }
+        }
+
+        // the picks of the last round, then the cycles from the last one
+        boolean[] chosen = new boolean[E];
+        for (int v = 0; v < V; v++) {
+            if (minIn[v] != -1 && present[v])
+                chosen[minIn[v]] = true;
+        }
+        boolean[] covered = new boolean[V];
+        for (int round = cycleEdges.size() - 1; round >= 0; round--) {
+            int[] into = entering.get(round);
+            for (int k = 0; k < into.length; k += 2) {
+                if (chosen[into[k]]) covered[into[k + 1]] = true;
+            }
+            //khong lay cac canh da chon khi co lai
+            int[] cycle = cycleEdges.get(round);
+            for (int k = 0; k < cycle.length; k += 2) {
+                if (!covered[cycle[k + 1]]) chosen[cycle[k]] = true;
+                covered[cycle[k + 1]] = false;
             }
-        } 
-        else {
-            for(EdmondEdge e: temp_mst.edges()){
-                mst.add(e);
-                weight += e.weight();
+        }
+        for (int e = 0; e < E; e++) {
+            if (chosen[e]) {
+                mst.add(edges[e]);
+                weight += edges[e].weight();
             }
         }
     }
@@ -129,6 +220,21 @@ public class EdmondMST {
         }
 
         System.out.printf("\nMax weight: %.2f\n", mst.weight());
+
+        // the cycle a4 -> a5 -> a4 only leaves toward the root a3: once it
+        // is contracted nothing enters it, so there is no arborescence
+        Vertex a3 = new Vertex("a3"), a4 = new Vertex("a4"), a5 = new Vertex("a5");
+        EdmondEdgeWeightedDigraph H = new EdmondEdgeWeightedDigraph();
+        H.addEdge(new EdmondEdge(a4, a5, 0));
+        H.addEdge(new EdmondEdge(a5, a4, 2));
+        H.addEdge(new EdmondEdge(a5, a3, 4));
+        try {
+            new EdmondMST(H, "a3");
+            System.out.println("Unreachable cycle: arborescence found");
+        }
+        catch (IllegalArgumentException e) {
+            System.out.println("Unreachable cycle: " + e.getMessage());
+        }
         System.out.println("\n\n");
     }
 }
@@ -0,0 +1,258 @@
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The weight of a minimum spanning arborescence of one digraph for every
+ * choice of root, from a single run of the Chu-Liu/Edmonds contractions,
+ * to rank candidate roots without an {@link EdmondMST} per root.
+ * <p>
+ * The contractions do not depend on the root. Without one, every vertex
+ * picks its cheapest entering edge and cycles are contracted, as in
+ * {@link EdmondArborescence}, until no super-node has an edge entering it
+ * from outside, a top. The vertices and super-nodes form a contraction
+ * forest, and each node but the tops has picked an edge of weight
+ * {@code pick[x]}, lowered by the picks below it. For a root {@code r},
+ * the contractions are the same except that the nodes holding {@code r},
+ * the path from {@code r} up its tree, never pick. So when exactly one
+ * top is left, a root in its tree weighs the sum of all picks less the
+ * picks on its path. From any other root nothing enters the top. After
+ * the O(E log V) contractions, every root costs O(1).
+ * <p>
+ * Only weights are computed. {@code new EdmondArborescence(G, bestRoot())}
+ * gives the edges for the best root.
+ */
+public class EdmondRoots {
+
+    private final int V;
+    private final String[] names;
+    private final HashMap<String, Integer> ids;
+    private final double[] weight;     // weight[v] = weight with root v
+    private final String best;
+
+    /**
+     * Computes the weight of a minimum spanning arborescence of {@code G}
+     * rooted at each of its vertices.
+     * @param G the edge-weighted digraph
+     */
+    public EdmondRoots(EdmondEdgeWeightedDigraph G) {
+        this(G, null);
+    }
+
+    /**
+     * Computes the weight of a minimum spanning arborescence of {@code G}
+     * rooted at each of its vertices, and the best of {@code roots}.
+     * @param G     the edge-weighted digraph
+     * @param roots the names of the candidate roots
+     * @throws IllegalArgumentException if a root is not in {@code G}
+     */
+    public EdmondRoots(EdmondEdgeWeightedDigraph G, Iterable<String> roots) {
+        V = G.V();
+        names = new String[V];
+        ids = new HashMap<String, Integer>();
+        for (Vertex v : G.vertices()) {
+            names[ids.size()] = v.toString();
+            ids.put(v.toString(), ids.size());
+        }
+        int E = G.E();
+        int[] from = new int[E];
+        int[] to = new int[E];
+        double[] w = new double[E];
+        int i = 0;
+        for (EdmondEdge e : G.edges()) {
+            from[i] = ids.get(e.from().toString());
+            to[i] = ids.get(e.to().toString());
+            w[i++] = e.weight();
+        }
+        weight = solve(from, to, w);
+
+        if (roots == null) {
+            List<String> all = new ArrayList<String>();
+            for (String name : names)
+                all.add(name);
+            roots = all;
+        }
+        String best = null;
+        for (String root : roots) {
+            if (best == null || weight(root) < weight(best))
+                best = root;
+        }
+        this.best = best == null || weight(best) == Double.POSITIVE_INFINITY ? null : best;
+    }
+
+    /**
+     * Contracts until no super-node has an entering edge left.
+     *
+     * @return the weight of a minimum spanning arborescence per root
+     */
+    private double[] solve(int[] from, int[] to, double[] w) {
+        EdgeHeaps heaps = new EdgeHeaps(w);
+        UF uf = new UF(V);
+        // contraction tree: vertices are nodes 0 to V - 1, super-nodes
+        // follow in the order they form, so a parent comes after its children
+        int[] treeParent = new int[2 * V];
+        double[] pick = new double[2 * V];
+        int[] node = new int[V];        // node[v] = tree node of the set v leads
+        int[] heap = new int[V];
+        int[] seen = new int[V];
+        int[] path = new int[V];
+        int nodes = V, tops = 0, top = -1;
+        for (int v = 0; v < V; v++) {
+            treeParent[v] = -1;
+            node[v] = v;
+            heap[v] = -1;
+            seen[v] = -1;
+        }
+        for (int i = 0; i < from.length; i++) {
+            if (from[i] != to[i])
+                heap[to[i]] = heaps.merge(heap[to[i]], i);
+        }
+
+        for (int s = 0; s < V; s++) {
+            int u = uf.find(s), n = 0;
+            while (seen[u] < 0) {
+                // drop the edges from inside the super-node
+                int e = heap[u];
+                while (e != -1 && uf.find(from[e]) == u) {
+                    heap[u] = heaps.pop(e);
+                    e = heap[u];
+                }
+                seen[u] = s;
+                if (e == -1) {
+                    // a top: nothing enters u
+                    tops++;
+                    top = node[u];
+                    break;
+                }
+                double min = heaps.key(e);
+                heap[u] = heaps.pop(e);
+                heaps.add(heap[u], -min);
+                pick[node[u]] = min;
+                path[n++] = u;
+                u = uf.find(from[e]);
+                if (seen[u] == s) {
+                    // the picks from u round to u are a cycle: contract it
+                    int x, cycle = -1;
+                    treeParent[nodes] = -1;
+                    do {
+                        x = path[--n];
+                        treeParent[node[x]] = nodes;
+                        cycle = heaps.merge(cycle, heap[x]);
+                        uf.union(u, x);
+                    } while (x != u);
+                    u = uf.find(u);
+                    heap[u] = cycle;
+                    node[u] = nodes++;
+                    seen[u] = -1;
+                }
+            }
+        }
+
+        // above[x] = sum of the picks from x up to its tree root; every
+        // node picked but the tops
+        double total = 0.0;
+        double[] above = new double[nodes];
+        int[] treeRoot = new int[nodes];
+        for (int x = nodes - 1; x >= 0; x--) {
+            total += pick[x];
+            if (treeParent[x] == -1) {
+                above[x] = pick[x];
+                treeRoot[x] = x;
+            }
+            else {
+                above[x] = pick[x] + above[treeParent[x]];
+                treeRoot[x] = treeRoot[treeParent[x]];
+            }
+        }
+        // only from the one top is every vertex reachable
+        double[] weight = new double[V];
+        for (int v = 0; v < V; v++) {
+            if (tops == 1 && treeRoot[v] == top)
+                weight[v] = total - above[v];
+            else
+                weight[v] = Double.POSITIVE_INFINITY;
+        }
+        return weight;
+    }
+
+    /**
+     * Returns the weight of a minimum spanning arborescence rooted at
+     * {@code root}, the weight {@code new EdmondMST(G, root)} finds.
+     * @param root the name of the root vertex
+     * @return the weight, {@code Double.POSITIVE_INFINITY} if some vertex
+     *         cannot be reached from {@code root}
+     * @throws IllegalArgumentException if {@code root} is not in the graph
+     */
+    public double weight(String root) {
+        Integer v = ids.get(root);
+        if (v == null)
+            throw new IllegalArgumentException("Vertex " + root + " is not in graph");
+        return weight[v];
+    }
+
+    /**
+     * @return the candidate root of least weight, {@code null} if none
+     *         reaches every vertex
+     */
+    public String bestRoot() {
+        return best;
+    }
+
+    public static void main(String[] args) throws IOException, FileNotFoundException {
+
+        BufferedReader br = new BufferedReader(new FileReader("edmond.txt"));
+        EdmondEdgeWeightedDigraph G = new EdmondEdgeWeightedDigraph(br);
+        EdmondRoots roots = new EdmondRoots(G);
+        for (Vertex v : G.vertices()) {
+            String root = v.toString();
+            System.out.printf("root %s: %.2f", root, roots.weight(root));
+            if (roots.weight(root) != Double.POSITIVE_INFINITY)
+                System.out.printf(", EdmondMST %.2f", new EdmondMST(G, root).weight());
+            System.out.println();
+        }
+        System.out.println("Best root: " + roots.bestRoot() + "\n");
+
+        // a random strongly connected digraph: a ring plus random edges
+        int n = 2000, candidates = 50;
+        Random random = new Random(1);
+        G = new EdmondEdgeWeightedDigraph();
+        Vertex[] vertices = new Vertex[n];
+        for (int v = 0; v < n; v++)
+            vertices[v] = new Vertex("v" + v);
+        for (int v = 0; v < n; v++)
+            G.addEdge(new EdmondEdge(vertices[v], vertices[(v + 1) % n], 500 + random.nextInt(1000)));
+        for (int k = 0; k < 10 * n; k++)
+            G.addEdge(new EdmondEdge(vertices[random.nextInt(n)], vertices[random.nextInt(n)],
+                    random.nextInt(1000)));
+        List<String> names = new ArrayList<String>();
+        for (int k = 0; k < candidates; k++)
+            names.add("v" + random.nextInt(n));
+
+        long start = System.currentTimeMillis();
+        roots = new EdmondRoots(G, names);
+        long once = System.currentTimeMillis() - start;
+        start = System.currentTimeMillis();
+        String best = null;
+        double bestWeight = Double.POSITIVE_INFINITY;
+        boolean same = true;
+        for (String root : names) {
+            double w = new EdmondArborescence(G, root).weight();
+            same &= Math.abs(w - roots.weight(root)) < 1E-6;
+            if (w < bestWeight) {
+                best = root;
+                bestWeight = w;
+            }
+        }
+        long each = System.currentTimeMillis() - start;
+        System.out.printf("%d vertices, %d edges, %d candidate roots\n", G.V(), G.E(), candidates);
+        System.out.printf("  EdmondRoots            best %s %.2f  %6d ms\n", roots.bestRoot(),
+                roots.weight(roots.bestRoot()), once);
+        System.out.printf("  EdmondArborescence x%d best %s %.2f  %6d ms\n", candidates, best, bestWeight, each);
+        System.out.println("  Same weights: " + same);
+    }
+}
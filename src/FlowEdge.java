@@ -4,6 +4,7 @@ public class FlowEdge {
     private final int w; // to
     private final double capacity; // capacity
     private double flow; // flow
+    private final double cost; // cost per unit of flow
 
     /**
      * Initializes an edge from vertex {@code v} to vertex {@code w} with
@@ -23,6 +24,7 @@ public class FlowEdge {
         this.w = w;
         this.flow = 0;
         this.capacity = capacity;
+        this.cost = 0;
     }
 
     /**
@@ -48,6 +50,35 @@ public class FlowEdge {
         this.w = w;
         this.flow = flow;
         this.capacity = capacity;
+        this.cost = 0;
+    }
+
+    /**
+     * Initializes an edge from vertex {@code v} to vertex {@code w} with
+     * the given {@code capacity}, {@code flow} and {@code cost} per unit
+     * of flow, for min-cost flows.
+     * 
+     * @param v        the tail vertex
+     * @param w        the head vertex
+     * @param capacity the capacity of the edge
+     * @param flow     the flow on the edge
+     * @param cost     the cost of one unit of flow on the edge
+     * @throws IllegalArgumentException if {@code capacity} is negative
+     * @throws IllegalArgumentException unless {@code flow} is between
+     *                                  {@code 0.0} and {@code capacity}.
+     */
+    public FlowEdge(int v, int w, double capacity, double flow, double cost) {
+        validateVertex(v);
+        validateVertex(w);
+        if (capacity < 0)
+            throw new IllegalArgumentException("Edge capacity must be > 0");
+        if (flow > capacity || flow < 0)
+            throw new IllegalArgumentException("Flow must be between 0 and " + capacity);
+        this.v = v;
+        this.w = w;
+        this.flow = flow;
+        this.capacity = capacity;
+        this.cost = cost;
     }
 
     /**
@@ -60,6 +91,7 @@ public class FlowEdge {
         this.w = e.w;
         this.flow = e.flow;
         this.capacity = e.capacity;
+        this.cost = e.cost;
     }
 
     /**
@@ -90,6 +122,13 @@ public class FlowEdge {
         return capacity;
     }
 
+    /**
+     * @return the cost of one unit of flow on the edge, 0 unless given
+     */
+    public double cost() {
+        return cost;
+    }
+
     /**
      * @param vertex one endpoint of the edge
      * @return the endpoint of the edge that is different from the given vertex
@@ -143,6 +182,20 @@ public class FlowEdge {
             throw new IllegalArgumentException("Flow exceeds capacity");
     }
 
+    /**
+     * Sets the flow on the edge, for solvers that keep flows in arrays of
+     * their own and copy them back at the end.
+     *
+     * @param flow the flow on the edge
+     * @throws IllegalArgumentException unless {@code flow} is between
+     *                                  {@code 0.0} and {@code capacity}.
+     */
+    void setFlow(double flow) {
+        if (flow > capacity || flow < 0)
+            throw new IllegalArgumentException("Flow must be between 0 and " + capacity);
+        this.flow = flow;
+    }
+
     /**
      * @param v the vertex needs to check
      * @throws IllegalArgumentException if {@code v} is negative integer
@@ -1,5 +1,6 @@
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -53,6 +54,28 @@ public class FlowNetwork {
         }
     }
 
+    /**
+     * Initializes a flow network from the bytes of a channel, in the same
+     * format and without a string per line.
+     * @param channel the input channel
+     * @throws IOException if the channel has an exception
+     */
+    public FlowNetwork(ReadableByteChannel channel) throws IOException {
+        this(new EdgeListReader(channel));
+    }
+
+    private FlowNetwork(EdgeListReader in) throws IOException {
+        this(in.readInt());
+        int E = in.readInt();
+        for (int i = 0; i < E; i++) {
+            int v = in.readInt();
+            int w = in.readInt();
+            validateVertex(v);
+            validateVertex(w);
+            addEdge(new FlowEdge(v, w, in.readDouble()));
+        }
+    }
+
     /**
      * @return the number of vertices in the edge-weighted graph
      */
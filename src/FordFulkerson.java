@@ -6,7 +6,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
 
-public class FordFulkerson {
+public class FordFulkerson implements MaxFlow {
     private final Double FLOATING_POINT_EPSILON = 1E-10;
 
     private final int V;      
@@ -0,0 +1,427 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * A graph stored in a binary snapshot file and read through a memory map.
+ * <p>
+ * {@link #convert} turns one of the text files read by
+ * {@link EdgeWeightedDigraph}, {@link EdgeWeightedGraph} or
+ * {@link FlowNetwork} into a snapshot, and {@link #open} maps a snapshot so
+ * that edges and adjacency lists are read straight from the file: opening
+ * costs no parsing and no allocation per edge, whatever the size.
+ * <p>
+ * Layout, big-endian:
+ * <pre>
+ *   header     magic, version, kind, V, E, A        six ints, padded to 32 bytes
+ *   weight     double[E]   weight or capacity of edge i
+ *   from       int[E]      first endpoint of edge i, as in the text file
+ *   to         int[E]      second endpoint of edge i
+ *   offsets    int[V + 1]  adjacency list of v at adj[offsets[v] .. offsets[v + 1])
+ *   adj        int[A]      edge ids, A = E for a digraph and 2E otherwise
+ * </pre>
+ * Edge ids are the line numbers of the edges in the text file, and each
+ * adjacency list holds the same edges in the same order as {@code adj(v)}
+ * of the class the file was meant for: the edges entering {@code v} for a
+ * digraph, the edges incident on {@code v} otherwise.
+ */
+public class GraphSnapshot {
+    /** Snapshot of an {@link EdgeWeightedDigraph}. */
+    public static final int DIGRAPH = 0;
+    /** Snapshot of an {@link EdgeWeightedGraph}. */
+    public static final int GRAPH = 1;
+    /** Snapshot of a {@link FlowNetwork}. */
+    public static final int FLOW_NETWORK = 2;
+
+    private static final int MAGIC = 0x45574753; // "EWGS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    // bytes per mapped region; a multiple of 8, so no value straddles two
+    private static final int REGION_SHIFT = 30;
+    private static final long REGION_MASK = (1L << REGION_SHIFT) - 1;
+
+    private final int kind;
+    private final int V;
+    private final int E;
+    // byte positions of the arrays in the file
+    private final long weightAt;
+    private final long fromAt;
+    private final long toAt;
+    private final long offsetsAt;
+    private final long adjAt;
+    private final MappedByteBuffer[] regions;
+
+    private GraphSnapshot(int kind, int V, int E, MappedByteBuffer[] regions) {
+        this.kind = kind;
+        this.V = V;
+        this.E = E;
+        this.regions = regions;
+        weightAt = HEADER_BYTES;
+        fromAt = weightAt + 8L * E;
+        toAt = fromAt + 4L * E;
+        offsetsAt = toAt + 4L * E;
+        adjAt = offsetsAt + 4L * (V + 1);
+    }
+
+    /**
+     * Maps a snapshot file. The file stays mapped until the snapshot is
+     * garbage collected.
+     *
+     * @param file the snapshot file
+     * @return the snapshot
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public static GraphSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES)
+                throw new IOException(file + " is not a graph snapshot");
+            int n = (int) ((size + REGION_MASK) >>> REGION_SHIFT);
+            MappedByteBuffer[] regions = new MappedByteBuffer[n];
+            for (int r = 0; r < n; r++) {
+                long position = (long) r << REGION_SHIFT;
+                regions[r] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(REGION_MASK + 1, size - position));
+            }
+
+            MappedByteBuffer header = regions[0];
+            if (header.getInt(0) != MAGIC)
+                throw new IOException(file + " is not a graph snapshot");
+            if (header.getInt(4) != VERSION)
+                throw new IOException(file + " has snapshot version " + header.getInt(4)
+                        + ", expected " + VERSION);
+            int kind = header.getInt(8);
+            int V = header.getInt(12);
+            int E = header.getInt(16);
+            int A = header.getInt(20);
+            if (kind < DIGRAPH || kind > FLOW_NETWORK || V < 0 || E < 0
+                    || A != (kind == DIGRAPH ? E : 2L * E))
+                throw new IOException(file + " has a corrupt snapshot header");
+            if (size != HEADER_BYTES + 16L * E + 4L * (V + 1) + 4L * A)
+                throw new IOException(file + " is truncated");
+            return new GraphSnapshot(kind, V, E, regions);
+        }
+    }
+
+    /**
+     * Converts a text file, the number of vertices and the number of edges
+     * followed by one {@code v w weight} line per edge, into a snapshot.
+     *
+     * @param text     the text file
+     * @param kind     {@link #DIGRAPH}, {@link #GRAPH} or {@link #FLOW_NETWORK}
+     * @param snapshot the snapshot file to write
+     * @throws IOException if a file cannot be read or written
+     * @throws IllegalArgumentException if {@code kind} is unknown or an
+     *         endpoint is not a vertex, or a graph has more than
+     *         {@code Integer.MAX_VALUE} adjacency entries
+     */
+    public static void convert(Path text, int kind, Path snapshot) throws IOException {
+        if (kind < DIGRAPH || kind > FLOW_NETWORK)
+            throw new IllegalArgumentException("Unknown graph kind " + kind);
+
+        int V, E, A;
+        int[] from, to;
+        double[] weight;
+        try (FileChannel channel = FileChannel.open(text, StandardOpenOption.READ)) {
+            EdgeListReader in = new EdgeListReader(channel);
+            V = in.readInt();
+            E = in.readInt();
+            if (V < 0 || E < 0)
+                throw new IllegalArgumentException("Number of vertices or edges is negative");
+            // an undirected edge is in the lists of both ends
+            long entries = kind == DIGRAPH ? E : 2L * E;
+            if (entries > Integer.MAX_VALUE)
+                throw new IllegalArgumentException(entries + " adjacency entries do not fit in an array");
+            A = (int) entries;
+            from = new int[E];
+            to = new int[E];
+            weight = new double[E];
+            for (int i = 0; i < E; i++) {
+                from[i] = in.readInt();
+                to[i] = in.readInt();
+                validateVertex(from[i], V);
+                validateVertex(to[i], V);
+                weight[i] = in.readDouble();
+            }
+        }
+
+        // adjacency lists by a stable counting sort of the edge ids
+        int[] offsets = new int[V + 1];
+        for (int i = 0; i < E; i++) {
+            if (kind == DIGRAPH) {
+                offsets[to[i] + 1]++;
+            }
+            else {
+                offsets[from[i] + 1]++;
+                offsets[to[i] + 1]++;
+            }
+        }
+        for (int v = 0; v < V; v++)
+            offsets[v + 1] += offsets[v];
+        int[] next = new int[V];
+        System.arraycopy(offsets, 0, next, 0, V);
+        int[] adj = new int[A];
+        for (int i = 0; i < E; i++) {
+            if (kind == DIGRAPH) {
+                adj[next[to[i]]++] = i;
+            }
+            else {
+                adj[next[from[i]]++] = i;
+                adj[next[to[i]]++] = i;
+            }
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(snapshot), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(kind);
+            out.writeInt(V);
+            out.writeInt(E);
+            out.writeInt(A);
+            out.writeLong(0L);
+            for (double w : weight)
+                out.writeDouble(w);
+            for (int v : from)
+                out.writeInt(v);
+            for (int w : to)
+                out.writeInt(w);
+            for (int offset : offsets)
+                out.writeInt(offset);
+            for (int i : adj)
+                out.writeInt(i);
+        }
+    }
+
+    private static void validateVertex(int v, int V) {
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException(v + " is not between 0 and " + (V - 1));
+    }
+
+    private void validateVertex(int v) {
+        validateVertex(v, V);
+    }
+
+    private void validateEdge(int i) {
+        if (i < 0 || i >= E)
+            throw new IllegalArgumentException("Edge " + i + " is not between 0 and " + (E - 1));
+    }
+
+    private int intAt(long position) {
+        return regions[(int) (position >>> REGION_SHIFT)].getInt((int) (position & REGION_MASK));
+    }
+
+    private double doubleAt(long position) {
+        return regions[(int) (position >>> REGION_SHIFT)].getDouble((int) (position & REGION_MASK));
+    }
+
+    /**
+     * @return {@link #DIGRAPH}, {@link #GRAPH} or {@link #FLOW_NETWORK}
+     */
+    public int kind() {
+        return kind;
+    }
+
+    /**
+     * @return the number of vertices
+     */
+    public int V() {
+        return V;
+    }
+
+    /**
+     * @return the number of edges
+     */
+    public int E() {
+        return E;
+    }
+
+    /**
+     * @param i the edge id
+     * @return the first endpoint of edge {@code i}, its tail in a digraph or a flow network
+     */
+    public int from(int i) {
+        validateEdge(i);
+        return intAt(fromAt + 4L * i);
+    }
+
+    /**
+     * @param i the edge id
+     * @return the second endpoint of edge {@code i}, its head in a digraph or a flow network
+     */
+    public int to(int i) {
+        validateEdge(i);
+        return intAt(toAt + 4L * i);
+    }
+
+    /**
+     * @param i the edge id
+     * @return the weight of edge {@code i}, or its capacity in a flow network
+     */
+    public double weight(int i) {
+        validateEdge(i);
+        return doubleAt(weightAt + 8L * i);
+    }
+
+    /**
+     * @param v the vertex
+     * @return the position of the first edge of the adjacency list of {@code v}
+     */
+    public int begin(int v) {
+        validateVertex(v);
+        return intAt(offsetsAt + 4L * v);
+    }
+
+    /**
+     * @param v the vertex
+     * @return one past the position of the last edge of the adjacency list of {@code v}
+     */
+    public int end(int v) {
+        validateVertex(v);
+        return intAt(offsetsAt + 4L * (v + 1));
+    }
+
+    /**
+     * @param k a position between {@code begin(v)} and {@code end(v)}
+     * @return the id of the edge at that position
+     */
+    public int adjEdge(int k) {
+        return intAt(adjAt + 4L * k);
+    }
+
+    /**
+     * @param i the edge id
+     * @param v one endpoint of edge {@code i}
+     * @return the other endpoint
+     */
+    public int other(int i, int v) {
+        int a = from(i);
+        return a == v ? to(i) : a;
+    }
+
+    /**
+     * @return the snapshot as an {@link EdgeWeightedDigraph}
+     * @throws UnsupportedOperationException unless this is a digraph snapshot
+     */
+    public EdgeWeightedDigraph digraph() {
+        checkKind(DIGRAPH);
+        EdgeWeightedDigraph G = new EdgeWeightedDigraph(V);
+        for (int i = 0; i < E; i++)
+            G.addEdge(new DirectedEdge(from(i), to(i), weight(i)));
+        return G;
+    }
+
+    /**
+     * Copies the snapshot into the CSR arrays, which are the same ones.
+     *
+     * @return the snapshot as a {@link CSREdgeWeightedDigraph}
+     * @throws UnsupportedOperationException unless this is a digraph snapshot
+     */
+    public CSREdgeWeightedDigraph csr() {
+        checkKind(DIGRAPH);
+        int[] offsets = new int[V + 1];
+        for (int v = 0; v <= V; v++)
+            offsets[v] = intAt(offsetsAt + 4L * v);
+        int[] targets = new int[E];
+        double[] weights = new double[E];
+        for (int k = 0; k < E; k++) {
+            int i = adjEdge(k);
+            targets[k] = intAt(fromAt + 4L * i);
+            weights[k] = doubleAt(weightAt + 8L * i);
+        }
+        return new CSREdgeWeightedDigraph(V, offsets, targets, weights);
+    }
+
+    /**
+     * @return the snapshot as an {@link EdgeWeightedGraph}
+     * @throws UnsupportedOperationException unless this is a graph snapshot
+     */
+    public EdgeWeightedGraph graph() {
+        checkKind(GRAPH);
+        EdgeWeightedGraph G = new EdgeWeightedGraph(V);
+        for (int i = 0; i < E; i++)
+            G.addEdge(new Edge(from(i), to(i), weight(i)));
+        return G;
+    }
+
+    /**
+     * @return the snapshot as a {@link FlowNetwork} with zero flow
+     * @throws UnsupportedOperationException unless this is a flow network snapshot
+     */
+    public FlowNetwork flowNetwork() {
+        checkKind(FLOW_NETWORK);
+        FlowNetwork G = new FlowNetwork(V);
+        for (int i = 0; i < E; i++)
+            G.addEdge(new FlowEdge(from(i), to(i), weight(i)));
+        return G;
+    }
+
+    private void checkKind(int expected) {
+        if (kind != expected)
+            throw new UnsupportedOperationException("Snapshot is of kind " + kind + ", not " + expected);
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        // the sample files survive a round trip
+        Path tmp = Files.createTempFile("snapshot", ".bin");
+        convert(Path.of("dijkstra.txt"), DIGRAPH, tmp);
+        EdgeWeightedDigraph D = new EdgeWeightedDigraph(new BufferedReader(new FileReader("dijkstra.txt")));
+        boolean same = open(tmp).digraph().toString().equals(D.toString());
+        same &= open(tmp).csr().toString().equals(new CSREdgeWeightedDigraph(D).toString());
+        convert(Path.of("prim.txt"), GRAPH, tmp);
+        same &= open(tmp).graph().toString().equals(
+                new EdgeWeightedGraph(new BufferedReader(new FileReader("prim.txt"))).toString());
+        convert(Path.of("fordfulkerson.txt"), FLOW_NETWORK, tmp);
+        same &= open(tmp).flowNetwork().toString().equals(
+                new FlowNetwork(new BufferedReader(new FileReader("fordfulkerson.txt"))).toString());
+        System.out.println("Same graphs as the text files: " + same);
+
+        // edges entering 6 in dijkstra.txt, read from the map
+        convert(Path.of("dijkstra.txt"), DIGRAPH, tmp);
+        GraphSnapshot snapshot = open(tmp);
+        System.out.print("adj(6):");
+        for (int k = snapshot.begin(6); k < snapshot.end(6); k++) {
+            int i = snapshot.adjEdge(k);
+            System.out.printf("  %d->%d %.2f", snapshot.from(i), snapshot.to(i), snapshot.weight(i));
+        }
+        System.out.println("\n");
+
+        // a million vertices and four million edges
+        int V = 1000000, E = 4 * V;
+        Path text = Files.createTempFile("graph", ".txt");
+        Random random = new Random(1);
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(text))) {
+            out.println(V);
+            out.println(E);
+            for (int i = 0; i < E; i++)
+                out.printf("%d %d %.5f\n", random.nextInt(V), random.nextInt(V), random.nextDouble());
+        }
+        long start = System.currentTimeMillis();
+        EdgeWeightedDigraph G = new EdgeWeightedDigraph(Files.newBufferedReader(text));
+        long parsed = System.currentTimeMillis();
+        convert(text, DIGRAPH, tmp);
+        long converted = System.currentTimeMillis();
+        snapshot = open(tmp);
+        double sum = 0.0;
+        for (int k = snapshot.begin(0); k < snapshot.end(0); k++)
+            sum += snapshot.weight(snapshot.adjEdge(k));
+        long opened = System.currentTimeMillis();
+        System.out.println("V = " + V + ", E = " + E);
+        System.out.printf("  parse text               %5d ms\n", parsed - start);
+        System.out.printf("  convert to snapshot      %5d ms\n", converted - parsed);
+        System.out.printf("  open and read adj(0)     %5d ms  (%.2f, %d edges)\n",
+                opened - converted, sum, G.indegree(0));
+        Files.delete(text);
+        Files.delete(tmp);
+    }
+}
@@ -0,0 +1,281 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * The shortest simple paths from {@code s} to {@code t} in increasing order
+ * of length, produced on demand with Yen's algorithm.
+ * <p>
+ * Unlike {@link DijkstraAllPairs}, nothing is computed up front: every
+ * iterator runs its own enumeration and only pays for the paths it hands
+ * out, at most {@code k} of them and none longer than {@code maxLength}.
+ * Each new path costs O(L) restricted Dijkstra searches, L being the
+ * number of edges of the previous path. Edge weights must be non-negative.
+ */
+public class KShortestPaths implements Iterable<List<DirectedEdge>> {
+    // number of vertices in the graph
+    private final int V;
+    // edges[i] = edge with id i
+    private final DirectedEdge[] edges;
+    // out[v] = ids of the edges leaving v
+    private final int[][] out;
+    private final int s;
+    private final int t;
+    private final int k;
+    private final double maxLength;
+
+    /**
+     * @param G         an edge weighted digraph with non-negative weights
+     * @param s         the source vertex
+     * @param t         the sink vertex
+     * @param k         the maximum number of paths to produce
+     * @param maxLength paths longer than this are not produced
+     * @throws IllegalArgumentException if {@code k < 0} or an edge weight is negative
+     */
+    public KShortestPaths(EdgeWeightedDigraph G, int s, int t, int k, double maxLength) {
+        this.V = G.V();
+        validateVertex(s);
+        validateVertex(t);
+        if (k < 0)
+            throw new IllegalArgumentException("k is negative");
+        this.s = s;
+        this.t = t;
+        this.k = k;
+        this.maxLength = maxLength;
+
+        // find edges coming out of v
+        edges = new DirectedEdge[G.E()];
+        int[] outdegree = new int[V];
+        int i = 0;
+        for (DirectedEdge e : G.edges()) {
+            if (e.weight() < 0)
+                throw new IllegalArgumentException("edge " + e + " has negative weight");
+            edges[i++] = e;
+            outdegree[e.from()]++;
+        }
+        out = new int[V][];
+        for (int v = 0; v < V; v++)
+            out[v] = new int[outdegree[v]];
+        for (i = 0; i < edges.length; i++) {
+            int v = edges[i].from();
+            out[v][out[v].length - outdegree[v]--] = i;
+        }
+    }
+
+    /**
+     * @param v the vertex need to check
+     * @throws IllegalArgumentException if v < 0 || v >= V
+     */
+    private void validateVertex(int v) {
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException(v + " is not between 0 and " + (V - 1));
+    }
+
+    /**
+     * @return an iterator over the paths, shortest first, each one a list
+     *         of edges from {@code s} to {@code t}
+     */
+    public Iterator<List<DirectedEdge>> iterator() {
+        return new YenIterator();
+    }
+
+    /**
+     * A candidate path: edge ids from s to t and the total weight.
+     */
+    private static class Candidate implements Comparable<Candidate> {
+        private final int[] path;
+        private final double length;
+
+        private Candidate(int[] path, double length) {
+            this.path = path;
+            this.length = length;
+        }
+
+        @Override
+        public int compareTo(Candidate o) {
+            int cmp = Double.compare(length, o.length);
+            if (cmp != 0) return cmp;
+            return Integer.compare(path.length, o.path.length);
+        }
+    }
+
+    private class YenIterator implements Iterator<List<DirectedEdge>> {
+        // paths handed out so far
+        private final List<int[]> found = new ArrayList<>();
+        // candidates not handed out yet, and every path ever queued
+        private final PriorityQueue<Candidate> candidates = new PriorityQueue<>();
+        private final Set<List<Integer>> queued = new HashSet<>();
+        // next path to return, null if not computed yet
+        private Candidate next;
+        private boolean done;
+
+        // scratch arrays of the restricted Dijkstra, reset by stamps
+        private final double[] distTo = new double[V];
+        private final int[] edgeTo = new int[V];
+        private final int[] reached = new int[V];
+        private final int[] bannedVertex = new int[V];
+        private final int[] bannedEdge = new int[edges.length];
+        private final IndexMinDoublePQ pq = new IndexMinDoublePQ(V);
+        private int stamp = 0;
+
+        private YenIterator() {
+            if (k == 0) {
+                done = true;
+                return;
+            }
+            stamp++;
+            int[] first = spurPath(s);
+            if (first != null)
+                offer(first, length(first));
+        }
+
+        public boolean hasNext() {
+            if (next == null && !done)
+                advance();
+            return next != null;
+        }
+
+        public List<DirectedEdge> next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            List<DirectedEdge> path = new LinkedList<>();
+            for (int i : next.path)
+                path.add(edges[i]);
+            next = null;
+            return path;
+        }
+
+        /**
+         * Moves the shortest candidate to the found paths, then queues the
+         * spur paths that deviate from it.
+         */
+        private void advance() {
+            Candidate c = candidates.poll();
+            if (c == null || c.length > maxLength) {
+                done = true;
+                return;
+            }
+            found.add(c.path);
+            next = c;
+            if (found.size() == k) {
+                done = true;
+                return;
+            }
+
+            int[] last = c.path;
+            double rootLength = 0.0;
+            for (int i = 0; i < last.length; i++) {
+                int spur = edges[last[i]].from();
+                stamp++;
+                // the root path must stay simple
+                for (int j = 0; j < i; j++)
+                    bannedVertex[edges[last[j]].from()] = stamp;
+                // do not repeat a path already found with the same root
+                for (int[] p : found) {
+                    if (p.length > i && sameRoot(p, last, i))
+                        bannedEdge[p[i]] = stamp;
+                }
+
+                int[] spurPath = spurPath(spur);
+                if (spurPath != null) {
+                    int[] path = new int[i + spurPath.length];
+                    System.arraycopy(last, 0, path, 0, i);
+                    System.arraycopy(spurPath, 0, path, i, spurPath.length);
+                    offer(path, rootLength + length(spurPath));
+                }
+                rootLength += edges[last[i]].weight();
+            }
+        }
+
+        private boolean sameRoot(int[] p, int[] q, int n) {
+            for (int j = 0; j < n; j++)
+                if (p[j] != q[j]) return false;
+            return true;
+        }
+
+        private double length(int[] path) {
+            double length = 0.0;
+            for (int i : path)
+                length += edges[i].weight();
+            return length;
+        }
+
+        private void offer(int[] path, double length) {
+            if (length > maxLength)
+                return;
+            List<Integer> key = new ArrayList<>(path.length);
+            for (int i : path)
+                key.add(i);
+            if (queued.add(key))
+                candidates.add(new Candidate(path, length));
+        }
+
+        /**
+         * Dijkstra from {@code v} to {@code t} avoiding the vertices and
+         * edges banned with the current stamp.
+         *
+         * @return edge ids of the path, or {@code null} if t is unreachable
+         */
+        private int[] spurPath(int v) {
+            pq.clear();
+            reached[v] = stamp;
+            distTo[v] = 0.0;
+            edgeTo[v] = -1;
+            pq.insert(v, 0.0);
+
+            while (!pq.isEmpty()) {
+                int x = pq.delMin();
+                if (x == t) break;
+                for (int i : out[x]) {
+                    int y = edges[i].to();
+                    if (bannedEdge[i] == stamp || bannedVertex[y] == stamp) continue;
+                    double d = distTo[x] + edges[i].weight();
+                    if (reached[y] != stamp || distTo[y] > d) {
+                        boolean onQueue = reached[y] == stamp && pq.contains(y);
+                        reached[y] = stamp;
+                        distTo[y] = d;
+                        edgeTo[y] = i;
+                        if (onQueue) pq.decreaseKey(y, d);
+                        else        pq.insert(y, d);
+                    }
+                }
+            }
+            if (reached[t] != stamp)
+                return null;
+
+            int n = 0;
+            for (int x = t; x != v; x = edges[edgeTo[x]].from())
+                n++;
+            int[] path = new int[n];
+            for (int x = t; x != v; x = edges[edgeTo[x]].from())
+                path[--n] = edgeTo[x];
+            return path;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        BufferedReader br = new BufferedReader(new FileReader("dijkstra.txt"));
+        EdgeWeightedDigraph G = new EdgeWeightedDigraph(br);
+        System.out.println(G);
+
+        int s = 4, t = 6;
+        System.out.println("5 shortest paths from " + s + " to " + t);
+        for (List<DirectedEdge> path : new KShortestPaths(G, s, t, 5, Double.POSITIVE_INFINITY)) {
+            double length = 0.0;
+            for (DirectedEdge e : path)
+                length += e.weight();
+            System.out.printf("%d to %d (%.2f)  ", s, t, length);
+            for (DirectedEdge e : path)
+                System.out.print(e + "  ");
+            System.out.println();
+        }
+    }
+}
@@ -0,0 +1,249 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A minimum spanning forest by filter-Kruskal: Kruskal's scan of the edges
+ * in order of weight, joining the components of a {@link UF} and keeping
+ * each edge that joins two, where the edges are ordered lazily.
+ * <p>
+ * The edges are an {@code int[]} of edge ids into arrays of endpoints and
+ * weights. A range of it is split around a random pivot weight into
+ * lighter, equal and heavier edges, as in a three-way quicksort. The
+ * lighter part is handled first, recursively; then the equal ones are
+ * scanned; then the heavier part is filtered, dropping every edge whose
+ * ends are already joined, before it is handled in turn. Small ranges are
+ * sorted by insertion and scanned. The scan stops once the forest has
+ * V - 1 edges, so on graphs much denser than their tree most heavy edges
+ * are filtered away in large blocks and never sorted. It takes
+ * O(E + V log V log(E / V)) expected time for random weights, against
+ * O(E log E) for sorting first.
+ */
+public class KruskalMST implements MST {
+    // ranges up to this many edges are sorted by insertion
+    private static final int INSERTION_SORT = 16;
+
+    private final int V;
+    private final int[] either;
+    private final int[] other;
+    private final double[] w;
+    private final Edge[] graphEdges;    // the edges of G, null for arrays
+    private final Random random = new Random(0);
+
+    private int[] order;                // edge ids, partitioned in place
+    private UF uf;
+    private int[] mst;                  // edge ids of the forest
+    private int size;
+    private double weight;
+
+    /**
+     * Computes a minimum spanning forest of {@code G}.
+     * @param G the edge-weighted graph
+     */
+    public KruskalMST(EdgeWeightedGraph G) {
+        V = G.V();
+        int E = G.E();
+        either = new int[E];
+        other = new int[E];
+        w = new double[E];
+        graphEdges = new Edge[E];
+        int i = 0;
+        for (Edge e : G.edges()) {
+            either[i] = e.either();
+            other[i] = e.other(either[i]);
+            w[i] = e.weight();
+            graphEdges[i++] = e;
+        }
+        // edges() leaves out self loops
+        solve(i);
+    }
+
+    /**
+     * Computes a minimum spanning forest of the graph on vertices
+     * {@code 0} to {@code V - 1} whose edge {@code i} joins
+     * {@code either[i]} and {@code other[i]} with weight {@code weight[i]}.
+     * The arrays are kept, not copied, and must not change.
+     * @param V      the number of vertices
+     * @param either one end of each edge
+     * @param other  the other end of each edge
+     * @param weight the weight of each edge
+     * @throws IllegalArgumentException if the arrays differ in length, a
+     *         vertex is not between 0 and {@code V - 1}, or a weight is NaN
+     */
+    public KruskalMST(int V, int[] either, int[] other, double[] weight) {
+        if (V < 0)
+            throw new IllegalArgumentException("Number of vertices must be nonnegative");
+        if (either.length != other.length || either.length != weight.length)
+            throw new IllegalArgumentException("Edge arrays differ in length");
+        this.V = V;
+        this.either = either;
+        this.other = other;
+        this.w = weight;
+        this.graphEdges = null;
+        for (int i = 0; i < either.length; i++) {
+            validateVertex(either[i]);
+            validateVertex(other[i]);
+            if (Double.isNaN(weight[i]))
+                throw new IllegalArgumentException("Weight is NaN");
+        }
+        solve(either.length);
+    }
+
+    private void solve(int E) {
+        order = new int[E];
+        for (int i = 0; i < E; i++)
+            order[i] = i;
+        uf = new UF(V);
+        mst = new int[Math.max(0, V - 1)];
+        kruskal(0, E);
+        for (int k = 0; k < size; k++)
+            weight += w[mst[k]];
+        order = null;
+        uf = null;
+    }
+
+    /**
+     * Adds the edges of {@code order[lo..hi-1]} that join two components,
+     * lightest first.
+     */
+    private void kruskal(int lo, int hi) {
+        if (size == mst.length)
+            return;
+        if (hi - lo <= INSERTION_SORT) {
+            insertionSort(lo, hi);
+            scan(lo, hi);
+            return;
+        }
+
+        // three-way partition: lighter in [lo, lt), equal in [lt, gt], heavier in (gt, hi)
+        double pivot = w[order[lo + random.nextInt(hi - lo)]];
+        int lt = lo, gt = hi - 1, k = lo;
+        while (k <= gt) {
+            double x = w[order[k]];
+            if      (x < pivot) swap(lt++, k++);
+            else if (x > pivot) swap(k, gt--);
+            else                k++;
+        }
+        kruskal(lo, lt);
+        scan(lt, gt + 1);
+        kruskal(gt + 1, filter(gt + 1, hi));
+    }
+
+    /**
+     * Keeps those of {@code order[lo..hi-1]} whose ends are not joined
+     * yet, in front.
+     *
+     * @return the end of the kept edges
+     */
+    private int filter(int lo, int hi) {
+        if (size == mst.length)
+            return lo;
+        int n = lo;
+        for (int k = lo; k < hi; k++) {
+            int e = order[k];
+            if (uf.find(either[e]) != uf.find(other[e]))
+                order[n++] = e;
+        }
+        return n;
+    }
+
+    /**
+     * Kruskal's step over {@code order[lo..hi-1]}, taken in order.
+     */
+    private void scan(int lo, int hi) {
+        for (int k = lo; k < hi && size < mst.length; k++) {
+            int e = order[k];
+            int v = uf.find(either[e]), u = uf.find(other[e]);
+            if (v != u) {
+                uf.union(v, u);
+                mst[size++] = e;
+            }
+        }
+    }
+
+    private void insertionSort(int lo, int hi) {
+        for (int i = lo + 1; i < hi; i++) {
+            int e = order[i];
+            int j = i;
+            for (; j > lo && w[order[j - 1]] > w[e]; j--)
+                order[j] = order[j - 1];
+            order[j] = e;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int x = order[i];
+        order[i] = order[j];
+        order[j] = x;
+    }
+
+    private void validateVertex(int v) {
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("Vertex " + v + " is not between 0 and " + (V - 1));
+    }
+
+    /**
+     * @return the edges of the minimum spanning forest, lightest first:
+     *         those of the graph it was computed from, or new edges when
+     *         it was given arrays
+     */
+    public Iterable<Edge> edges() {
+        List<Edge> list = new ArrayList<Edge>(size);
+        for (int k = 0; k < size; k++) {
+            int i = mst[k];
+            list.add(graphEdges != null ? graphEdges[i] : new Edge(either[i], other[i], w[i]));
+        }
+        return list;
+    }
+
+    /**
+     * @return the sum of the edge weights of the minimum spanning forest
+     */
+    public double weight() {
+        return weight;
+    }
+
+    /**
+     * @return the number of trees in the minimum spanning forest
+     */
+    public int components() {
+        return V - size;
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        BufferedReader br = new BufferedReader(new FileReader("prim.txt"));
+        EdgeWeightedGraph G = new EdgeWeightedGraph(br);
+        MST kruskal = new KruskalMST(G);
+        System.out.println("Minimum spanning tree: ");
+        for (Edge e : kruskal.edges())
+            System.out.println("  " + e);
+        System.out.printf("Weight %.2f, PrimMST %.2f\n\n", kruskal.weight(), new PrimMST(G).weight());
+
+        // random graphs of average degree 2E / V, best time of three runs
+        Random random = new Random(1);
+        int V = 200000;
+        for (int degree : new int[] { 3, 6, 20, 60 }) {
+            int E = V / 2 * degree;
+            G = new EdgeWeightedGraph(V);
+            for (int v = 1; v < V; v++)
+                G.addEdge(new Edge(random.nextInt(v), v, random.nextDouble()));
+            for (int i = V - 1; i < E; i++)
+                G.addEdge(new Edge(random.nextInt(V), random.nextInt(V), random.nextDouble()));
+            System.out.println(V + " vertices, " + E + " edges");
+            for (MST.Engine engine : MST.Engine.values()) {
+                long best = Long.MAX_VALUE;
+                MST forest = null;
+                for (int run = 0; run < 3; run++) {
+                    long start = System.nanoTime();
+                    forest = MST.of(engine, G);
+                    best = Math.min(best, System.nanoTime() - start);
+                }
+                System.out.printf("  %-8s weight %.6f %8.1f ms\n", engine, forest.weight(), best / 1E6);
+            }
+        }
+    }
+}
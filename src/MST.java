@@ -0,0 +1,50 @@
+/**
+ * A minimum spanning forest of an {@link EdgeWeightedGraph}: a minimum
+ * spanning tree of each connected component, one tree when the graph is
+ * connected.
+ */
+public interface MST {
+
+    /**
+     * The algorithms that compute an {@code MST}.
+     */
+    enum Engine {
+        /** Eager Prim on an indexed priority queue, {@link PrimMST}. */
+        PRIM,
+        /** Parallel Boruvka rounds, {@link BoruvkaMST}. */
+        BORUVKA,
+        /** Filter-Kruskal on a union-find, {@link KruskalMST}. */
+        KRUSKAL
+    }
+
+    /**
+     * @return the edges of the minimum spanning forest
+     */
+    Iterable<Edge> edges();
+
+    /**
+     * @return the sum of the edge weights of the minimum spanning forest
+     */
+    double weight();
+
+    /**
+     * @return the number of trees in the forest, the number of connected
+     *         components of the graph
+     */
+    int components();
+
+    /**
+     * Computes a minimum spanning forest with the given engine.
+     *
+     * @param engine the algorithm to use
+     * @param G      the edge-weighted graph
+     * @return the minimum spanning forest
+     */
+    static MST of(Engine engine, EdgeWeightedGraph G) {
+        switch (engine) {
+            case BORUVKA: return new BoruvkaMST(G);
+            case KRUSKAL: return new KruskalMST(G);
+            default:      return new PrimMST(G);
+        }
+    }
+}
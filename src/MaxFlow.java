@@ -0,0 +1,53 @@
+/**
+ * A maximum flow and minimum cut from {@code s} to {@code t} in a
+ * {@link FlowNetwork}. Both engines leave the flow on the
+ * {@link FlowEdge}s of the network.
+ */
+public interface MaxFlow {
+
+    /**
+     * The algorithms that compute a {@code MaxFlow}.
+     */
+    enum Engine {
+        /** Shortest augmenting paths, {@link FordFulkerson}. */
+        FORD_FULKERSON,
+        /** Blocking flows on level graphs, {@link Dinic}. */
+        DINIC,
+        /** Highest-label push-relabel, {@link PushRelabel}. */
+        PUSH_RELABEL
+    }
+
+    /**
+     * @return the value of the maximum flow
+     */
+    double maxFlow();
+
+    /**
+     * @param v the vertex
+     * @return {@code true} if v is on the source side of the mincut
+     *         {@code false} otherwise
+     */
+    boolean inCut(int v);
+
+    /**
+     * @return the vertices on the source side of the mincut
+     */
+    Iterable<Integer> edgeInCut();
+
+    /**
+     * Computes a maximum flow with the given engine.
+     *
+     * @param engine the algorithm to use
+     * @param G      the flow network
+     * @param s      the source vertex
+     * @param t      the sink vertex
+     * @return the maximum flow
+     */
+    static MaxFlow of(Engine engine, FlowNetwork G, int s, int t) {
+        switch (engine) {
+            case DINIC:        return new Dinic(G, s, t);
+            case PUSH_RELABEL: return new PushRelabel(G, s, t);
+            default:           return new FordFulkerson(G, s, t);
+        }
+    }
+}
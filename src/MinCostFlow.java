@@ -0,0 +1,475 @@
+import java.util.ArrayDeque;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A maximum flow of minimum total cost from {@code s} to {@code t}, with
+ * the minimum cut, over a {@link ResidualNetwork} whose edges carry a
+ * cost per unit of flow ({@link FlowEdge#cost()}).
+ * <p>
+ * Two algorithms compute it:
+ * <ul>
+ * <li>{@link Algorithm#SUCCESSIVE_SHORTEST_PATHS} augments along a
+ *     cheapest residual path from {@code s} to {@code t} until there is
+ *     none. Johnson potentials keep every reduced cost non-negative, so each
+ *     path is found by a Dijkstra search on an {@link IndexMinDoublePQ}
+ *     that stops once {@code t} is settled. Bellman-Ford runs only once, to
+ *     set the first potentials when some cost is negative. The number of
+ *     searches grows with the number of paths, so it suits networks with a
+ *     few paths or small capacities. Costs may be any doubles, but no
+ *     cycle of residual arcs may cost less than zero, wherever it is:
+ *     augmenting paths never cancel one, so it is rejected.</li>
+ * <li>{@link Algorithm#COST_SCALING} first finds a maximum flow with
+ *     {@link PushRelabel}, then makes it cheapest by Goldberg and Tarjan's
+ *     cost scaling. Costs are multiplied by V + 1 and kept in longs with a
+ *     long price per vertex. Each round saturates every residual arc of
+ *     negative reduced cost and pushes the excess back with push-relabel
+ *     on arcs of negative reduced cost, which leaves the flow
+ *     &epsilon;-optimal, and &epsilon; shrinks by {@code ALPHA} per round
+ *     until it reaches 1. It takes O(V<sup>2</sup> E log(V C)) time
+ *     whatever the capacities, for costs at most C in absolute value.
+ *     Costs must be integers.</li>
+ * </ul>
+ * Both leave the flow in the residual network, or on the
+ * {@link FlowEdge}s when given a {@link FlowNetwork}. Self loops carry no
+ * flow whatever their cost. The cut is the set of vertices {@code s}
+ * reaches through residual arcs.
+ */
+public class MinCostFlow implements MaxFlow {
+    // factor by which the cost scaling shrinks epsilon per round
+    private static final int ALPHA = 16;
+
+    /**
+     * The algorithms that compute a {@code MinCostFlow}.
+     */
+    public enum Algorithm {
+        SUCCESSIVE_SHORTEST_PATHS,
+        COST_SCALING
+    }
+
+    private final int V;
+    private final ResidualNetwork R;
+    private double value;
+    private double cost;
+    private boolean[] marked;
+    private int augmentations;
+
+    /**
+     * Computes a min-cost maximum flow by successive shortest paths,
+     * leaving the flow on the edges of {@code G}.
+     * @param G the flow network, with no flow on its edges
+     * @param s the source vertex
+     * @param t the sink vertex
+     * @throws IllegalArgumentException if {@code s == t}
+     * @throws IllegalArgumentException if an edge carries flow
+     * @throws IllegalArgumentException if {@code G} has a cycle of negative cost
+     */
+    public MinCostFlow(FlowNetwork G, int s, int t) {
+        this(G, s, t, Algorithm.SUCCESSIVE_SHORTEST_PATHS);
+    }
+
+    /**
+     * Computes a min-cost maximum flow, leaving the flow on the edges of
+     * {@code G}.
+     * @param G         the flow network, with no flow on its edges
+     * @param s         the source vertex
+     * @param t         the sink vertex
+     * @param algorithm the algorithm to use
+     * @throws IllegalArgumentException if {@code s == t}
+     * @throws IllegalArgumentException if an edge carries flow
+     * @throws IllegalArgumentException for successive shortest paths, if
+     *         the network has a cycle of negative cost
+     * @throws IllegalArgumentException for cost scaling, if a cost is not
+     *         an integer or too large once scaled
+     */
+    public MinCostFlow(FlowNetwork G, int s, int t, Algorithm algorithm) {
+        this(new ResidualNetwork(G), s, t, algorithm);
+        R.copyFlowsTo(G);
+    }
+
+    /**
+     * Computes a min-cost maximum flow, leaving the flow in {@code R}.
+     * @param R         the residual network, with no flow on its edges
+     * @param s         the source vertex
+     * @param t         the sink vertex
+     * @param algorithm the algorithm to use
+     * @throws IllegalArgumentException if {@code s == t}
+     * @throws IllegalArgumentException if an edge carries flow
+     * @throws IllegalArgumentException for successive shortest paths, if
+     *         the network has a cycle of negative cost
+     * @throws IllegalArgumentException for cost scaling, if a cost is not
+     *         an integer or too large once scaled
+     */
+    public MinCostFlow(ResidualNetwork R, int s, int t, Algorithm algorithm) {
+        this.V = R.V();
+        this.R = R;
+        validateVertex(s);
+        validateVertex(t);
+        if (s == t)
+            throw new IllegalArgumentException("Source equals sink");
+        for (int i = 0; i < R.E(); i++) {
+            if (R.flow(i) != 0.0)
+                throw new IllegalArgumentException("Edge " + i + " already carries flow");
+        }
+
+        if (algorithm == Algorithm.COST_SCALING) costScaling(s, t);
+        else                                     successiveShortestPaths(s, t);
+
+        for (int a = R.first[t]; a != -1; a = R.next[a])
+            value += (a & 1) == 1 ? R.flow(a >> 1) : -R.flow(a >> 1);
+        for (int i = 0; i < R.E(); i++)
+            cost += R.flow(i) * R.cost(i);
+        cut(s);
+    }
+
+    /**
+     * Augments along cheapest paths, found by Dijkstra on reduced costs.
+     */
+    private void successiveShortestPaths(int s, int t) {
+        int[] head = R.head;
+        int[] next = R.next;
+        double[] cap = R.cap;
+        double[] arcCost = R.cost;
+        double[] potential = initialPotentials();
+        double[] dist = new double[V];
+        int[] arcTo = new int[V];
+        IndexMinDoublePQ pq = new IndexMinDoublePQ(V);
+
+        while (true) {
+            for (int v = 0; v < V; v++)
+                dist[v] = Double.POSITIVE_INFINITY;
+            pq.clear();
+            dist[s] = 0.0;
+            arcTo[s] = -1;
+            pq.insert(s, 0.0);
+            while (!pq.isEmpty()) {
+                int v = pq.delMin();
+                if (v == t)
+                    break;
+                for (int a = R.first[v]; a != -1; a = next[a]) {
+                    if (cap[a] <= 0)
+                        continue;
+                    int w = head[a];
+                    // non-negative up to rounding
+                    double reduced = Math.max(0.0, arcCost[a] + potential[v] - potential[w]);
+                    double d = dist[v] + reduced;
+                    if (d < dist[w]) {
+                        dist[w] = d;
+                        arcTo[w] = a;
+                        if (pq.contains(w)) pq.decreaseKey(w, d);
+                        else                pq.insert(w, d);
+                    }
+                }
+            }
+            if (dist[t] == Double.POSITIVE_INFINITY)
+                return;
+
+            // vertices not settled before t move by dist[t], which keeps
+            // every reduced cost non-negative
+            for (int v = 0; v < V; v++)
+                potential[v] += Math.min(dist[v], dist[t]);
+
+            double bottle = Double.POSITIVE_INFINITY;
+            for (int v = t; v != s; v = head[arcTo[v] ^ 1])
+                bottle = Math.min(bottle, cap[arcTo[v]]);
+            for (int v = t; v != s; v = head[arcTo[v] ^ 1]) {
+                int a = arcTo[v];
+                if (bottle == cap[a]) cap[a] = 0.0;
+                else                  cap[a] -= bottle;
+                cap[a ^ 1] += bottle;
+            }
+            augmentations++;
+        }
+    }
+
+    /**
+     * @return zero potentials if no cost is negative, otherwise the
+     *         Bellman-Ford distances over residual arcs from a virtual
+     *         source with an arc of cost zero to every vertex
+     * @throws IllegalArgumentException if the residual arcs have a cycle
+     *         of negative cost, reachable from {@code s} or not
+     */
+    private double[] initialPotentials() {
+        double[] potential = new double[V];
+        boolean negative = false;
+        for (int a = 0; a < 2 * R.E(); a += 2)
+            negative |= R.cost[a] < 0 && R.cap[a] > 0;
+        if (!negative)
+            return potential;
+
+        // queue-based Bellman-Ford from every vertex at once, so that a
+        // negative cycle s cannot reach is found too; a vertex queued V
+        // times is on a negative cycle
+        int[] queued = new int[V];
+        boolean[] onQueue = new boolean[V];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int v = 0; v < V; v++) {
+            queue.add(v);
+            onQueue[v] = true;
+        }
+        while (!queue.isEmpty()) {
+            int v = queue.poll();
+            onQueue[v] = false;
+            for (int a = R.first[v]; a != -1; a = R.next[a]) {
+                int w = R.head[a];
+                if (R.cap[a] > 0 && w != v && potential[v] + R.cost[a] < potential[w]) {
+                    potential[w] = potential[v] + R.cost[a];
+                    if (!onQueue[w]) {
+                        if (++queued[w] > V)
+                            throw new IllegalArgumentException("Network has a cycle of negative cost");
+                        queue.add(w);
+                        onQueue[w] = true;
+                    }
+                }
+            }
+        }
+        return potential;
+    }
+
+    /**
+     * Finds a maximum flow, then refines it to minimum cost.
+     */
+    private void costScaling(int s, int t) {
+        int E = R.E();
+        long scale = V + 1;
+        long[] c = new long[2 * E];
+        long maxCost = 1;
+        for (int a = 0; a < 2 * E; a++) {
+            double x = R.cost[a];
+            if (x != Math.rint(x) || Math.abs(x) > Long.MAX_VALUE / 4 / scale / Math.max(1, V))
+                throw new IllegalArgumentException("Cost " + x + " is not an integer small enough to scale");
+            c[a] = (long) x * scale;
+            maxCost = Math.max(maxCost, Math.abs(c[a]));
+        }
+
+        new PushRelabel(R, s, t);
+
+        long[] price = new long[V];
+        double[] excess = new double[V];
+        int[] current = new int[V];
+        boolean[] onQueue = new boolean[V];
+        int[] queue = new int[V];
+        // excess below this is rounding left over from pushes
+        double tiny = 0.0;
+        for (int i = 0; i < E; i++)
+            tiny = Math.max(tiny, R.capacity[i]);
+        tiny *= 1E-12;
+
+        long eps = maxCost;
+        do {
+            eps = Math.max(1, eps / ALPHA);
+            refine(eps, c, price, excess, current, onQueue, queue, tiny);
+        } while (eps > 1);
+    }
+
+    /**
+     * Turns the flow into an {@code eps}-optimal one: no residual arc has
+     * a reduced cost below {@code -eps}.
+     */
+    private void refine(long eps, long[] c, long[] price, double[] excess, int[] current,
+                        boolean[] onQueue, int[] queue, double tiny) {
+        int[] head = R.head;
+        int[] next = R.next;
+        double[] cap = R.cap;
+
+        // saturate every residual arc of negative reduced cost
+        for (int v = 0; v < V; v++) {
+            for (int a = R.first[v]; a != -1; a = next[a]) {
+                double r = cap[a];
+                if (r > 0 && head[a] != v && c[a] + price[v] - price[head[a]] < 0) {
+                    excess[v] -= r;
+                    excess[head[a]] += r;
+                    cap[a] = 0.0;
+                    cap[a ^ 1] += r;
+                }
+            }
+        }
+
+        // FIFO queue of vertices with excess, in a ring of V slots
+        int qhead = 0, size = 0;
+        for (int v = 0; v < V; v++) {
+            current[v] = R.first[v];
+            if (excess[v] > tiny) {
+                queue[(qhead + size++) % V] = v;
+                onQueue[v] = true;
+            }
+        }
+        while (size > 0) {
+            int v = queue[qhead];
+            qhead = (qhead + 1) % V;
+            size--;
+            onQueue[v] = false;
+
+            // discharge v
+            while (excess[v] > tiny) {
+                int a = current[v];
+                for (; a != -1; a = next[a]) {
+                    if (cap[a] > 0 && head[a] != v && c[a] + price[v] - price[head[a]] < 0)
+                        break;
+                }
+                current[v] = a;
+                if (a == -1) {
+                    // relabel: lower the price until some residual arc is admissible
+                    long best = Long.MIN_VALUE;
+                    for (int b = R.first[v]; b != -1; b = next[b]) {
+                        if (cap[b] > 0 && head[b] != v)
+                            best = Math.max(best, price[head[b]] - c[b]);
+                    }
+                    price[v] = best - eps;
+                    current[v] = R.first[v];
+                    continue;
+                }
+                int w = head[a];
+                double delta = Math.min(excess[v], cap[a]);
+                if (delta == cap[a]) cap[a] = 0.0;
+                else                 cap[a] -= delta;
+                cap[a ^ 1] += delta;
+                excess[v] -= delta;
+                excess[w] += delta;
+                if (excess[w] > tiny && !onQueue[w]) {
+                    queue[(qhead + size++) % V] = w;
+                    onQueue[w] = true;
+                }
+            }
+            excess[v] = 0.0;
+        }
+        for (int v = 0; v < V; v++)
+            excess[v] = 0.0;
+    }
+
+    /**
+     * Marks the vertices {@code s} reaches through residual arcs.
+     */
+    private void cut(int s) {
+        marked = new boolean[V];
+        int[] queue = new int[V];
+        int qhead = 0, qtail = 0;
+        marked[s] = true;
+        queue[qtail++] = s;
+        while (qhead < qtail) {
+            int x = queue[qhead++];
+            for (int a = R.first[x]; a != -1; a = R.next[a]) {
+                int y = R.head[a];
+                if (!marked[y] && R.cap[a] > 0) {
+                    marked[y] = true;
+                    queue[qtail++] = y;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the value of the maximum flow
+     */
+    public double maxFlow() {
+        return value;
+    }
+
+    /**
+     * @return the total cost of the flow, the sum of flow times cost per edge
+     */
+    public double cost() {
+        return cost;
+    }
+
+    /**
+     * @return the number of paths augmented by successive shortest paths
+     */
+    public int augmentations() {
+        return augmentations;
+    }
+
+    /**
+     * @param v the vertex
+     * @return {@code true} if v is on the side of the mincut
+     *         {@code false} otherwise
+     */
+    public boolean inCut(int v) {
+        validateVertex(v);
+        return marked[v];
+    }
+
+    public Iterable<Integer> edgeInCut() {
+        List<Integer> list = new LinkedList<Integer>();
+        for (int v = 0; v < V; v ++) {
+            if (inCut(v)) list.add(v);
+        }
+        return list;
+    }
+
+    /**
+     * @param v the vertex need to check
+     */
+    private void validateVertex(int v) {
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("Vertex " + v + " is not between 0 and " + (V-1));
+    }
+
+    /**
+     * A transport network: s to each of n suppliers, each supplier to
+     * {@code degree} random customers at a random cost, each of n
+     * customers to t.
+     */
+    private static ResidualNetwork transport(int n, int degree, int capacity, Random random) {
+        int V = 2 * n + 2, s = V - 2, t = V - 1;
+        ResidualNetwork R = new ResidualNetwork(V);
+        for (int v = 0; v < n; v++) {
+            R.addEdge(s, v, 1 + random.nextInt(capacity));
+            R.addEdge(n + v, t, 1 + random.nextInt(capacity));
+            for (int k = 0; k < degree; k++)
+                R.addEdge(v, n + random.nextInt(n), 1 + random.nextInt(capacity), 0.0, random.nextInt(1000));
+        }
+        return R;
+    }
+
+    public static void main(String[] args) {
+
+        // two routes of capacity 2 from 0 to 3, the cheap one through 1
+        FlowNetwork G = new FlowNetwork(4);
+        G.addEdge(new FlowEdge(0, 1, 2, 0, 1));
+        G.addEdge(new FlowEdge(1, 3, 2, 0, 1));
+        G.addEdge(new FlowEdge(0, 2, 2, 0, 3));
+        G.addEdge(new FlowEdge(2, 3, 2, 0, 3));
+        G.addEdge(new FlowEdge(1, 2, 2, 0, -1));
+        MinCostFlow flow = new MinCostFlow(G, 0, 3);
+        System.out.println("Max flow " + flow.maxFlow() + " at cost " + flow.cost());
+        for (FlowEdge e : G.edges())
+            System.out.println("  " + e + " cost " + e.cost());
+        System.out.println();
+
+        // a negative cycle 4->5->4 that 0 cannot reach: cost scaling
+        // cancels it, successive shortest paths rejects it
+        for (Algorithm algorithm : Algorithm.values()) {
+            G = new FlowNetwork(6);
+            G.addEdge(new FlowEdge(0, 3, 1, 0, 1));
+            G.addEdge(new FlowEdge(4, 5, 1, 0, -2));
+            G.addEdge(new FlowEdge(5, 4, 1, 0, 1));
+            try {
+                flow = new MinCostFlow(G, 0, 3, algorithm);
+                System.out.printf("%-25s cost %.1f\n", algorithm, flow.cost());
+            }
+            catch (IllegalArgumentException e) {
+                System.out.printf("%-25s %s\n", algorithm, e.getMessage());
+            }
+        }
+        System.out.println();
+
+        for (int n : new int[] { 1000, 20000 }) {
+            for (int capacity : new int[] { 1, 50 }) {
+                System.out.println("Transport, " + n + " + " + n + " vertices, " + 5 * n
+                        + " routes, capacities up to " + capacity);
+                for (Algorithm algorithm : Algorithm.values()) {
+                    // one Dijkstra search per path is over a minute here
+                    if (algorithm == Algorithm.SUCCESSIVE_SHORTEST_PATHS && n > 1000)
+                        continue;
+                    ResidualNetwork R = transport(n, 5, capacity, new Random(n + capacity));
+                    long start = System.currentTimeMillis();
+                    flow = new MinCostFlow(R, R.V() - 2, R.V() - 1, algorithm);
+                    System.out.printf("  %-25s flow %8.0f  cost %12.0f  %6d ms\n", algorithm,
+                            flow.maxFlow(), flow.cost(), System.currentTimeMillis() - start);
+                }
+            }
+        }
+    }
+}
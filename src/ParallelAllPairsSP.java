@@ -0,0 +1,375 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * All-pairs shortest paths computed as V single-source Dijkstra runs spread
+ * over a {@link ForkJoinPool}, with the same {@code dist}/{@code hasPath}/
+ * {@code path} contract as {@link DijkstraAllPairsSP}.
+ * <p>
+ * Distances go into one row-major V x V matrix, {@code dist(s, t)} at
+ * {@code s * V + t}: a {@code double[]} on the heap, or a memory-mapped file
+ * when the matrix does not fit. No {@code edgeTo[]} is kept: {@code path(s, t)}
+ * walks back from {@code t} along edges that are tight for the row of
+ * {@code s}. Each worker thread owns one set of scratch arrays that it
+ * reuses for every source it runs.
+ */
+public class ParallelAllPairsSP {
+    // bytes per mapped region of the distance file
+    private static final long REGION_BYTES = 1L << 30;
+    // sources below this many are run in one task
+    private static final int SEQUENTIAL_SOURCES = 4;
+
+    private final int V;
+    // edges leaving v: positions off[v] .. off[v + 1] - 1
+    private int[] off;
+    private int[] head;
+    private double[] weight;
+    private DirectedEdgeD[] edges;
+    // edges entering v: inEdge[inOff[v]] .. inEdge[inOff[v + 1] - 1] are positions
+    private int[] inOff;
+    private int[] inEdge;
+
+    // row-major distance matrix: on the heap ...
+    private double[] matrix;
+    // ... or as mapped regions of rowsPerRegion rows each
+    private DoubleBuffer[] regions;
+    private int rowsPerRegion;
+
+    // per worker scratch arrays
+    private final ThreadLocal<Scratch> scratch;
+
+    /**
+     * Computes all shortest paths with one worker per core, keeping the
+     * distances on the heap.
+     *
+     * @param G the edge-weighted digraph
+     * @throws IllegalArgumentException if an edge weight is negative
+     * @throws IllegalArgumentException if V * V does not fit in a Java array
+     */
+    public ParallelAllPairsSP(EdgeWeightedDigraphD G) {
+        this(G, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param G           the edge-weighted digraph
+     * @param parallelism the number of worker threads
+     * @throws IllegalArgumentException if an edge weight is negative
+     * @throws IllegalArgumentException if V * V does not fit in a Java array
+     */
+    public ParallelAllPairsSP(EdgeWeightedDigraphD G, int parallelism) {
+        this.V = G.V();
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(V));
+        index(G);
+        if ((long) V * V > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("V * V distances do not fit on the heap, use a mapped file");
+        matrix = new double[V * V];
+        run(parallelism);
+    }
+
+    /**
+     * Computes all shortest paths, writing the distance matrix to
+     * {@code file} (created or truncated) and serving {@code dist} from it.
+     *
+     * @param G           the edge-weighted digraph
+     * @param file        the file holding the V x V distances
+     * @param parallelism the number of worker threads
+     * @throws IOException if the file cannot be created or mapped
+     * @throws IllegalArgumentException if an edge weight is negative
+     */
+    public ParallelAllPairsSP(EdgeWeightedDigraphD G, Path file, int parallelism)
+            throws IOException {
+        this.V = G.V();
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(V));
+        index(G);
+        long rowBytes = 8L * Math.max(V, 1);
+        if (rowBytes > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("A row of " + V + " distances does not fit in one mapping");
+        rowsPerRegion = (int) Math.max(1, Math.min(V, REGION_BYTES / rowBytes));
+        int n = (V + rowsPerRegion - 1) / rowsPerRegion;
+        regions = new DoubleBuffer[n];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int r = 0; r < n; r++) {
+                int rows = Math.min(rowsPerRegion, V - r * rowsPerRegion);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE,
+                        r * rowsPerRegion * rowBytes, rows * rowBytes);
+                regions[r] = buffer.order(ByteOrder.nativeOrder()).asDoubleBuffer();
+            }
+        }
+        run(parallelism);
+    }
+
+    /**
+     * Packs the adjacency of {@code G} into forward and reverse index arrays.
+     */
+    private void index(EdgeWeightedDigraphD G) {
+        off = new int[V + 1];
+        head = new int[G.E()];
+        weight = new double[G.E()];
+        edges = new DirectedEdgeD[G.E()];
+        inOff = new int[V + 1];
+        inEdge = new int[G.E()];
+
+        int i = 0;
+        for (int v = 0; v < V; v++) {
+            off[v] = i;
+            for (DirectedEdgeD e : G.adj(v)) {
+                if (e.weight() < 0)
+                    throw new IllegalArgumentException("edge " + e + " has negative weight");
+                edges[i] = e;
+                head[i] = e.to();
+                weight[i] = e.weight();
+                inOff[e.to() + 1]++;
+                i++;
+            }
+        }
+        off[V] = i;
+        for (int v = 0; v < V; v++)
+            inOff[v + 1] += inOff[v];
+        int[] next = new int[V];
+        System.arraycopy(inOff, 0, next, 0, V);
+        for (i = 0; i < edges.length; i++)
+            inEdge[next[head[i]]++] = i;
+    }
+
+    /**
+     * Runs one Dijkstra per source on a pool of {@code parallelism} workers.
+     */
+    private void run(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive");
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new Sources(0, V));
+        }
+        finally {
+            pool.shutdown();
+        }
+        if (regions != null) {
+            for (DoubleBuffer region : regions)
+                region.rewind();
+        }
+    }
+
+    /**
+     * Splits a range of sources in half until it is small enough to run.
+     */
+    private class Sources extends RecursiveAction {
+        private final int lo;
+        private final int hi;
+
+        private Sources(int lo, int hi) {
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= SEQUENTIAL_SOURCES) {
+                Scratch sc = scratch.get();
+                for (int s = lo; s < hi; s++) {
+                    sc.dijkstra(s);
+                    writeRow(s, sc.distTo);
+                }
+            }
+            else {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Sources(lo, mid), new Sources(mid, hi));
+            }
+        }
+    }
+
+    /**
+     * Scratch arrays of one worker thread.
+     */
+    private class Scratch {
+        private final double[] distTo;
+        private final int[] edgeTo;
+        private final IndexMinDoublePQ pq;
+
+        private Scratch(int V) {
+            distTo = new double[V];
+            edgeTo = new int[V];
+            pq = new IndexMinDoublePQ(V);
+        }
+
+        /**
+         * Single-source shortest paths from {@code s} into this scratch.
+         */
+        private void dijkstra(int s) {
+            Arrays.fill(distTo, Double.POSITIVE_INFINITY);
+            Arrays.fill(edgeTo, -1);
+            pq.clear();
+            distTo[s] = 0.0;
+            pq.insert(s, 0.0);
+            while (!pq.isEmpty()) {
+                int v = pq.delMin();
+                for (int i = off[v]; i < off[v + 1]; i++) {
+                    int w = head[i];
+                    double d = distTo[v] + weight[i];
+                    if (distTo[w] > d) {
+                        distTo[w] = d;
+                        edgeTo[w] = i;
+                        if (pq.contains(w)) pq.decreaseKey(w, d);
+                        else                pq.insert(w, d);
+                    }
+                }
+            }
+        }
+    }
+
+    private void writeRow(int s, double[] row) {
+        if (matrix != null) {
+            System.arraycopy(row, 0, matrix, s * V, V);
+        }
+        else {
+            int r = s / rowsPerRegion;
+            regions[r].put((s % rowsPerRegion) * V, row, 0, V);
+        }
+    }
+
+    // distance matrix entry for (s, t)
+    private double entry(int s, int t) {
+        if (matrix != null)
+            return matrix[s * V + t];
+        return regions[s / rowsPerRegion].get((s % rowsPerRegion) * V + t);
+    }
+
+    /**
+     * Returns a shortest path from vertex {@code s} to vertex {@code t}.
+     * @param  s the source vertex
+     * @param  t the destination vertex
+     * @return a shortest path from vertex {@code s} to vertex {@code t}
+     *         as an iterable of edges, and {@code null} if no such path
+     * @throws IllegalArgumentException unless {@code 0 <= s < V}
+     * @throws IllegalArgumentException unless {@code 0 <= t < V}
+     */
+    public Iterable<DirectedEdgeD> path(int s, int t) {
+        validateVertex(s);
+        validateVertex(t);
+        if (!hasPath(s, t)) return null;
+
+        // walk back along tight edges; at most V - 1 of them unless
+        // zero-weight cycles are involved
+        LinkedList<DirectedEdgeD> path = new LinkedList<DirectedEdgeD>();
+        for (int x = t; x != s; ) {
+            int tight = -1;
+            double dx = entry(s, x);
+            for (int k = inOff[x]; k < inOff[x + 1]; k++) {
+                int i = inEdge[k];
+                if (entry(s, edges[i].from()) + weight[i] == dx) {
+                    tight = i;
+                    break;
+                }
+            }
+            if (tight == -1 || path.size() >= V)
+                return treePath(s, t);
+            path.addFirst(edges[tight]);
+            x = edges[tight].from();
+        }
+        return path;
+    }
+
+    /**
+     * Recomputes the shortest-path tree of {@code s} to read off the path
+     * to {@code t}; only used when the tight-edge walk cannot.
+     */
+    private Iterable<DirectedEdgeD> treePath(int s, int t) {
+        Scratch sc = scratch.get();
+        sc.dijkstra(s);
+        LinkedList<DirectedEdgeD> path = new LinkedList<DirectedEdgeD>();
+        for (int i = sc.edgeTo[t]; i != -1; i = sc.edgeTo[edges[i].from()])
+            path.addFirst(edges[i]);
+        return path;
+    }
+
+    /**
+     * Is there a path from the vertex {@code s} to vertex {@code t}?
+     * @param  s the source vertex
+     * @param  t the destination vertex
+     * @return {@code true} if there is a path from vertex {@code s}
+     *         to vertex {@code t}, and {@code false} otherwise
+     * @throws IllegalArgumentException unless {@code 0 <= s < V}
+     * @throws IllegalArgumentException unless {@code 0 <= t < V}
+     */
+    public boolean hasPath(int s, int t) {
+        validateVertex(s);
+        validateVertex(t);
+        return dist(s, t) < Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the length of a shortest path from vertex {@code s} to vertex {@code t}.
+     * @param  s the source vertex
+     * @param  t the destination vertex
+     * @return the length of a shortest path from vertex {@code s} to vertex {@code t};
+     *         {@code Double.POSITIVE_INFINITY} if no such path
+     * @throws IllegalArgumentException unless {@code 0 <= s < V}
+     * @throws IllegalArgumentException unless {@code 0 <= t < V}
+     */
+    public double dist(int s, int t) {
+        validateVertex(s);
+        validateVertex(t);
+        return entry(s, t);
+    }
+
+    // throw an IllegalArgumentException unless {@code 0 <= v < V}
+    private void validateVertex(int v) {
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (V-1));
+    }
+
+    /**
+     * Unit tests the {@code ParallelAllPairsSP} data type.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) throws IOException {
+
+        // read edge-weighted digraph
+        In in = new In("dijkstra.txt");
+        EdgeWeightedDigraphD G = new EdgeWeightedDigraphD(in);
+
+        DijkstraAllPairsSP sequential = new DijkstraAllPairsSP(G);
+        ParallelAllPairsSP heap = new ParallelAllPairsSP(G, 4);
+        Path file = Files.createTempFile("apsp", ".bin");
+        ParallelAllPairsSP mapped = new ParallelAllPairsSP(G, file, 4);
+
+        boolean same = true;
+        for (int v = 0; v < G.V(); v++) {
+            for (int w = 0; w < G.V(); w++) {
+                same &= sequential.dist(v, w) == heap.dist(v, w);
+                same &= sequential.dist(v, w) == mapped.dist(v, w);
+            }
+        }
+        StdOut.println("Same distances as DijkstraAllPairsSP: " + same);
+        StdOut.println();
+
+        // print all-pairs shortest paths
+        for (int v = 0; v < G.V(); v++) {
+            for (int w = 0; w < G.V(); w++) {
+                if (mapped.hasPath(v, w)) {
+                    StdOut.printf("%d to %d (%5.2f)  ", v, w, mapped.dist(v, w));
+                    for (DirectedEdgeD e : mapped.path(v, w))
+                        StdOut.print(e + "  ");
+                    StdOut.println();
+                }
+                else {
+                    StdOut.printf("%d to %d no path\n", v, w);
+                }
+            }
+        }
+        Files.deleteIfExists(file);
+    }
+}
@@ -0,0 +1,334 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.Random;
+
+/**
+ * Point-to-point shortest paths: the length of a shortest path from one
+ * vertex {@code v} to one destination {@code u}, without settling the whole
+ * graph the way {@link DijkstraSDP} does.
+ * <p>
+ * The default mode is a bidirectional Dijkstra: a forward search from
+ * {@code v} over the edges leaving each vertex and a backward search from
+ * {@code u} over the reverse adjacency, stopped as soon as the sum of the
+ * two queue minima reaches the best path seen. Given a {@link SPHeuristic}
+ * the query is an A* search from {@code v} instead, stopped when {@code u}
+ * is settled.
+ * <p>
+ * The searches run in two {@link DijkstraWorkspace}s owned by this object,
+ * so repeated queries allocate nothing until a path is asked for. Not
+ * thread-safe: use one instance per thread.
+ */
+public class PointToPointSP {
+
+    private final CSREdgeWeightedDigraph G;
+    // null for bidirectional mode
+    private final SPHeuristic heuristic;
+    // forward search: distFrom[x] = distance from the source to x,
+    // edgeFrom[x] = last edge on that path
+    private final DijkstraWorkspace fwd;
+    // backward search: distFrom[x] = distance from x to the destination
+    private final DijkstraWorkspace bwd;
+
+    // last query
+    private int source = -1;
+    private int dest = -1;
+    private double dist;
+    // vertex on the shortest path where the two searches meet
+    private int meet;
+    // number of vertices settled by the last query
+    private int settled;
+
+    /**
+     * Bidirectional Dijkstra mode.
+     *
+     * @param G the edge-weighted digraph
+     * @throws IllegalArgumentException if an edge weight is negative
+     */
+    public PointToPointSP(CSREdgeWeightedDigraph G) {
+        this(G, null);
+    }
+
+    /**
+     * A* mode, or bidirectional mode if {@code heuristic} is {@code null}.
+     *
+     * @param G         the edge-weighted digraph
+     * @param heuristic an admissible estimate of the distance to the destination
+     * @throws IllegalArgumentException if an edge weight is negative
+     */
+    public PointToPointSP(CSREdgeWeightedDigraph G, SPHeuristic heuristic) {
+        for (int i = 0; i < G.E(); i++) {
+            if (G.weight(i) < 0)
+                throw new IllegalArgumentException("edge " + G.edge(i) + " has negative weight");
+        }
+        this.G = G;
+        this.heuristic = heuristic;
+        fwd = new DijkstraWorkspace(G.V());
+        bwd = new DijkstraWorkspace(G.V());
+    }
+
+    /**
+     * @param v the vertex needs to checked
+     * @throws IllegalArgumentException if v < 0 || v >= V
+     */
+    private void validateVertex(int v) {
+        int V = G.V();
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("Vertex " + v + " is not between 0 and " + (V - 1));
+    }
+
+    /**
+     * Returns the length of a shortest path from {@code v} to {@code u}.
+     *
+     * @param v the source vertex
+     * @param u the destination vertex
+     * @return Infinity if no such path from v to u
+     */
+    public double distFrom(int v, int u) {
+        query(v, u);
+        return dist;
+    }
+
+    /**
+     * @param v the source vertex
+     * @param u the destination vertex
+     * @return {@code true} if there is a path from {@code v} to {@code u}
+     */
+    public boolean hasPathFrom(int v, int u) {
+        return distFrom(v, u) < Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns a shortest path from {@code v} to {@code u}
+     *
+     * @param v the source vertex
+     * @param u the destination vertex
+     * @return the edges of the path, or {@code null} if there is no path
+     */
+    public LinkedList<DirectedEdge> pathFrom(int v, int u) {
+        if (!hasPathFrom(v, u))
+            return null;
+
+        LinkedList<DirectedEdge> path = new LinkedList<>();
+        // forward half, walked back from the meeting vertex
+        for (int x = meet; fwd.edgeFrom[x] != -1; ) {
+            DirectedEdge e = G.edge(fwd.edgeFrom[x]);
+            path.addFirst(e);
+            x = e.from();
+        }
+        // backward half
+        for (int x = meet; bwd.edgeFrom[x] != -1; ) {
+            DirectedEdge e = G.edge(bwd.edgeFrom[x]);
+            path.add(e);
+            x = e.to();
+        }
+        return path;
+    }
+
+    /**
+     * @return the number of vertices settled by the last query
+     */
+    public int settledCount() {
+        return settled;
+    }
+
+    /**
+     * Runs the search for ({@code v}, {@code u}) unless it is the last query.
+     */
+    private void query(int v, int u) {
+        validateVertex(v);
+        validateVertex(u);
+        if (v == source && u == dest)
+            return;
+
+        fwd.reset(G);
+        bwd.reset(G);
+        dist = Double.POSITIVE_INFINITY;
+        meet = -1;
+        settled = 0;
+        if (heuristic == null) bidirectional(v, u);
+        else                   astar(v, u);
+        source = v;
+        dest = u;
+    }
+
+    /**
+     * Bidirectional Dijkstra from {@code s} and {@code t}.
+     */
+    private void bidirectional(int s, int t) {
+        fwd.touch(s);
+        fwd.distFrom[s] = 0.0;
+        fwd.pq.insert(s, 0.0);
+        bwd.touch(t);
+        bwd.distFrom[t] = 0.0;
+        bwd.pq.insert(t, 0.0);
+
+        while (!fwd.pq.isEmpty() && !bwd.pq.isEmpty()) {
+            // no unsettled vertex can improve on the best path any more
+            if (fwd.pq.minKey() + bwd.pq.minKey() >= dist)
+                break;
+            if (fwd.pq.size() <= bwd.pq.size()) forwardStep();
+            else                                backwardStep();
+        }
+    }
+
+    /**
+     * Settles the closest vertex of the forward search and relaxes the
+     * edges leaving it.
+     */
+    private void forwardStep() {
+        int x = fwd.pq.delMin();
+        fwd.settled[x] = true;
+        settled++;
+        meet(x);
+
+        double[] distTo = fwd.distFrom;
+        for (int k = G.outBegin(x); k < G.outEnd(x); k++) {
+            int i = G.outEdge(k);
+            int y = G.outHead(k);
+            double d = distTo[x] + G.weight(i);
+            if (distTo[y] > d) {
+                fwd.touch(y);
+                fwd.edgeFrom[y] = i;
+                distTo[y] = d;
+                if (fwd.pq.contains(y)) fwd.pq.decreaseKey(y, d);
+                else                    fwd.pq.insert(y, d);
+            }
+            meet(y);
+        }
+    }
+
+    /**
+     * Settles the closest vertex of the backward search and relaxes the
+     * edges entering it.
+     */
+    private void backwardStep() {
+        int x = bwd.pq.delMin();
+        bwd.settled[x] = true;
+        settled++;
+        meet(x);
+
+        double[] distFrom = bwd.distFrom;
+        for (int i = G.begin(x); i < G.end(x); i++) {
+            int y = G.from(i);
+            double d = distFrom[x] + G.weight(i);
+            if (distFrom[y] > d) {
+                bwd.touch(y);
+                bwd.edgeFrom[y] = i;
+                distFrom[y] = d;
+                if (bwd.pq.contains(y)) bwd.pq.decreaseKey(y, d);
+                else                    bwd.pq.insert(y, d);
+            }
+            meet(y);
+        }
+    }
+
+    /**
+     * Updates the best path if the two searches meet at {@code x}.
+     */
+    private void meet(int x) {
+        double d = fwd.distFrom[x] + bwd.distFrom[x];
+        if (d < dist) {
+            dist = d;
+            meet = x;
+        }
+    }
+
+    /**
+     * A* search from {@code s}, keyed by distance plus the estimate to
+     * {@code t}. A vertex is reopened if a shorter path to it shows up
+     * later, so the result is exact for any admissible heuristic.
+     */
+    private void astar(int s, int t) {
+        double[] distTo = fwd.distFrom;
+        fwd.touch(s);
+        distTo[s] = 0.0;
+        fwd.pq.insert(s, heuristic.estimate(s, t));
+
+        while (!fwd.pq.isEmpty()) {
+            int x = fwd.pq.delMin();
+            fwd.settled[x] = true;
+            settled++;
+            if (x == t) break;
+
+            for (int k = G.outBegin(x); k < G.outEnd(x); k++) {
+                int i = G.outEdge(k);
+                int y = G.outHead(k);
+                double d = distTo[x] + G.weight(i);
+                if (distTo[y] > d) {
+                    fwd.touch(y);
+                    fwd.edgeFrom[y] = i;
+                    distTo[y] = d;
+                    double key = d + heuristic.estimate(y, t);
+                    if (fwd.pq.contains(y)) fwd.pq.changeKey(y, key);
+                    else                    fwd.pq.insert(y, key);
+                }
+            }
+        }
+
+        dist = distTo[t];
+        meet = t;
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        BufferedReader br = new BufferedReader(new FileReader("dijkstra.txt"));
+        EdgeWeightedDigraph G = new EdgeWeightedDigraph(br);
+        CSREdgeWeightedDigraph csr = new CSREdgeWeightedDigraph(G);
+
+        // landmark heuristic: d(v, u) >= d(v, L) - d(u, L) for a landmark L
+        DijkstraEngine engine = new DijkstraEngine(csr);
+        final DijkstraWorkspace landmark = engine.solve(6, engine.newWorkspace());
+        SPHeuristic alt = (v, u) -> {
+            double d = landmark.distFrom(v) - landmark.distFrom(u);
+            return d > 0 && d < Double.POSITIVE_INFINITY ? d : 0.0;
+        };
+
+        PointToPointSP bidi = new PointToPointSP(csr);
+        PointToPointSP astar = new PointToPointSP(csr, alt);
+        boolean same = true;
+        for (int u = 0; u < G.V(); u++) {
+            DijkstraSDP sdp = new DijkstraSDP(G, u);
+            for (int v = 0; v < G.V(); v++) {
+                same &= sdp.distFrom(v) == bidi.distFrom(v, u)
+                        || Math.abs(sdp.distFrom(v) - bidi.distFrom(v, u)) < 1E-12;
+                same &= sdp.distFrom(v) == astar.distFrom(v, u)
+                        || Math.abs(sdp.distFrom(v) - astar.distFrom(v, u)) < 1E-12;
+            }
+        }
+        System.out.println("Same distances as DijkstraSDP: " + same);
+        System.out.printf("0 to 6 (%.2f)  ", bidi.distFrom(0, 6));
+        for (DirectedEdge e : bidi.pathFrom(0, 6))
+            System.out.print(e + "  ");
+        System.out.println("\n");
+
+        // settled vertices on a 200 x 200 grid with euclidean weights
+        final int n = 200;
+        Random random = new Random(1);
+        EdgeWeightedDigraph grid = new EdgeWeightedDigraph(n * n);
+        for (int r = 0; r < n; r++) {
+            for (int c = 0; c < n; c++) {
+                int v = r * n + c;
+                if (c + 1 < n) {
+                    grid.addEdge(new DirectedEdge(v, v + 1, 1 + random.nextDouble()));
+                    grid.addEdge(new DirectedEdge(v + 1, v, 1 + random.nextDouble()));
+                }
+                if (r + 1 < n) {
+                    grid.addEdge(new DirectedEdge(v, v + n, 1 + random.nextDouble()));
+                    grid.addEdge(new DirectedEdge(v + n, v, 1 + random.nextDouble()));
+                }
+            }
+        }
+        CSREdgeWeightedDigraph gridCsr = new CSREdgeWeightedDigraph(grid);
+        SPHeuristic manhattan = (v, u) -> Math.abs(v / n - u / n) + Math.abs(v % n - u % n);
+        PointToPointSP gridBidi = new PointToPointSP(gridCsr);
+        PointToPointSP gridAstar = new PointToPointSP(gridCsr, manhattan);
+
+        int v = 90 * n + 90, u = 110 * n + 110;
+        System.out.println("Grid " + n + " x " + n + ", " + v + " to " + u + ":");
+        System.out.printf("  DijkstraSDP    %.2f  settled %d\n", new DijkstraSDP(grid, u).distFrom(v), grid.V());
+        System.out.printf("  bidirectional  %.2f  settled %d\n", gridBidi.distFrom(v, u), gridBidi.settledCount());
+        System.out.printf("  A*             %.2f  settled %d\n", gridAstar.distFrom(v, u), gridAstar.settledCount());
+    }
+}
@@ -1,14 +1,24 @@
 import java.io.*;
 import java.util.*;
 
-public class PrimMST {
+/**
+ * Eager Prim: each vertex not yet in the tree is in an
+ * {@link IndexMinDoublePQ} once, keyed by the lightest edge joining it to
+ * the tree, and a lighter edge lowers that key with {@code decreaseKey}
+ * instead of adding a duplicate entry. The queue never holds more than V
+ * entries, for O(E log V) time. Growing a tree again from every vertex
+ * no tree has reached gives a minimum spanning forest when the graph is
+ * not connected.
+ */
+public class PrimMST implements MST {
 
     private boolean[] used;     // marker array
-    private double[] distTo;   
+    private double[] distTo;    // distTo[v] = weight of the lightest edge from v to the tree
     private double weight = 0;
-    private Edge[] edgeTo;  
+    private Edge[] edgeTo;      // edgeTo[v] = that edge
     private Queue<Edge> mst;    // edges of minimum spanning tree
-    private PriorityQueue<Pair<Integer, Double>> pq;
+    private IndexMinDoublePQ pq;
+    private int components;
 
     /**
      * @param G an undirected graph with non-negative weights
@@ -18,33 +28,35 @@ public class PrimMST {
         distTo = new double[G.V()];
         edgeTo = new Edge[G.V()];
         mst = new ArrayDeque<Edge>();
-        pq = new PriorityQueue<Pair<Integer, Double>>();
+        pq = new IndexMinDoublePQ(G.V());
         // initialization step
         for (int v = 0; v < G.V(); v++)
             distTo[v] = Double.POSITIVE_INFINITY;
 
-        distTo[0] = 0.0;
-        pq.add(new Pair<Integer, Double>(0, 0.0));
-
-        // prim algorithm
-        while (!pq.isEmpty()) {
-            int v = pq.poll().key();
-            visit(G, v);
+        // prim algorithm from every vertex no tree has reached yet
+        for (int s = 0; s < G.V(); s++) {
+            if (used[s]) continue;
+            components++;
+            distTo[s] = 0.0;
+            pq.insert(s, 0.0);
+            while (!pq.isEmpty()) {
+                int v = pq.delMin();
+                visit(G, v);
+            }
         }
-        // add edge of mst to queue (mst)
-        for (int v = 1 ; v < edgeTo.length ; v++) {
+        // add edge of mst to queue (mst), roots have none
+        for (int v = 0; v < edgeTo.length; v++) {
+            if (edgeTo[v] == null) continue;
             mst.add(edgeTo[v]);
             weight += distTo[v];
         }
     }
 
-    /** 
+    /**
      * @param G an undirected graph with non-negative weights
-     * @param v vertex to visit 
+     * @param v vertex to visit
      */
     private void visit(EdgeWeightedGraph G, int v) { // O(E * log(V))
-        if (used[v]) return;
-
         used[v] = true;
         for (Edge e : G.adj(v)) {
             int u = e.other(v);
@@ -54,7 +66,8 @@ public class PrimMST {
                 edgeTo[u] = e;
                 distTo[u] = e.weight();
 
-                pq.add(new Pair<Integer,Double>(u, distTo[u]));
+                if (pq.contains(u)) pq.decreaseKey(u, distTo[u]);
+                else                pq.insert(u, distTo[u]);
             }
         }
     }
@@ -66,6 +79,13 @@ public class PrimMST {
         return mst;
     }
 
+    /**
+     * @return the edges of the minimum spanning forest
+     */
+    public Iterable<Edge> edges() {
+        return mst;
+    }
+
     /**
      * @return the weighted sum of the minimum spanning tree
      */
@@ -73,6 +93,13 @@ public class PrimMST {
         return weight;
     }
 
+    /**
+     * @return the number of trees in the minimum spanning forest
+     */
+    public int components() {
+        return components;
+    }
+
     public static void main(String[] args) throws IOException {
         // Create an edge weighted graph with the input stream
         BufferedReader br = new BufferedReader(new FileReader("prim.txt"));
@@ -84,7 +111,7 @@ public class PrimMST {
         // Create primMST object with G
         PrimMST prim = new PrimMST(G);
 
-        // Print out mininum spanning tree 
+        // Print out mininum spanning tree
         System.out.println("Minimum spanning tree: ");
         for (Edge e : prim.edgesOfMst()) {
             System.out.println("  " + e);
@@ -92,4 +119,4 @@ public class PrimMST {
         // print out minimum spanning tree value
         System.out.printf("\nMinimum spanning tree value: %.2f\n\n", prim.weight());
     }
-}
\ No newline at end of file
+}
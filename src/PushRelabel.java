@@ -0,0 +1,453 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Maximum flow and minimum cut by highest-label push-relabel, with the
+ * same results as {@link FordFulkerson}.
+ * <p>
+ * The engine runs over a {@link ResidualNetwork}, the flow network packed
+ * into arrays of residual arcs; given a {@link FlowNetwork} it packs one
+ * and copies the flows back to the {@link FlowEdge}s at the end. The first
+ * phase pushes a preflow towards {@code t}, always discharging an active
+ * vertex of the highest label. Two heuristics keep the labels close to the
+ * real distances to {@code t}:
+ * <ul>
+ * <li>global relabel: after a fixed amount of relabelling work, a
+ *     breadth-first search back from {@code t} through the residual arcs
+ *     sets every label to its exact distance,</li>
+ * <li>gap: when relabelling empties a label, every vertex above it can no
+ *     longer reach {@code t} and is set aside at once.</li>
+ * </ul>
+ * The preflow then holds a maximum flow value. The second phase runs the
+ * same engine towards {@code s} to return the excess of the vertices set
+ * aside, which turns the preflow into a flow. The cut is the set of
+ * vertices {@code s} can reach through the residual arcs.
+ * <p>
+ * Runs in O(V<sup>2</sup> &radic;E) time in the worst case, against
+ * O(V E<sup>2</sup>) for the augmenting paths of {@code FordFulkerson}.
+ */
+public class PushRelabel implements MaxFlow {
+    private static final double FLOATING_POINT_EPSILON = 1E-10;
+    // a global relabel follows ALPHA * V + arcs / 2 units of relabelling
+    // work, counted as BETA plus the degree of each relabelled vertex
+    private static final int ALPHA = 6;
+    private static final int BETA = 12;
+
+    private final int V;
+    private final ResidualNetwork R;
+    private double value;
+    private boolean[] marked;
+
+    private double[] excess;
+    // label[v] = V once v can no longer reach the target of the phase
+    private int[] label;
+    private int[] current;
+    // active vertices of label k: a stack through nextActive
+    private int[] activeHead;
+    private int[] nextActive;
+    private int maxActive;
+    // every vertex of label k below V: a doubly linked list, for the gap
+    private int[] bucketHead;
+    private int[] bucketNext;
+    private int[] bucketPrev;
+    private int maxLabel;
+    private long work;
+
+    /**
+     * Compute a maximum flow and minimum cut in the network {@code G}
+     * from vertex {@code s} to vertex {@code t}, leaving the flow on the
+     * edges of {@code G}.
+     * @param G the flow network
+     * @param s the source vertex
+     * @param t the sink vertex
+     * @throws IllegalArgumentException if {@code s == t}
+     * @throws IllegalArgumentException if initial flow is infeasible
+     */
+    public PushRelabel(FlowNetwork G, int s, int t) {
+        this(new ResidualNetwork(G), s, t);
+        R.copyFlowsTo(G);
+    }
+
+    /**
+     * Compute a maximum flow and minimum cut in the residual network
+     * {@code R} from vertex {@code s} to vertex {@code t}, leaving the
+     * flow in {@code R}.
+     * @param R the residual network
+     * @param s the source vertex
+     * @param t the sink vertex
+     * @throws IllegalArgumentException if {@code s == t}
+     * @throws IllegalArgumentException if initial flow is infeasible
+     */
+    public PushRelabel(ResidualNetwork R, int s, int t) {
+        this.V = R.V();
+        this.R = R;
+        validateVertex(s);
+        validateVertex(t);
+        if (s == t)
+            throw new IllegalArgumentException("Source equals sink");
+        if (!isFeasible(s, t))
+            throw new IllegalArgumentException("Initial flow is infeasible");
+
+        excess = new double[V];
+        label = new int[V];
+        current = new int[V];
+        activeHead = new int[V + 1];
+        nextActive = new int[V];
+        bucketHead = new int[V + 1];
+        bucketNext = new int[V];
+        bucketPrev = new int[V];
+
+        // saturate every arc leaving s, then push towards t
+        for (int a = R.first[s]; a != -1; a = R.next[a]) {
+            if (R.cap[a] > 0 && R.head[a] != s) {
+                excess[s] = R.cap[a];
+                push(s, a, R.head[a]);
+            }
+        }
+        excess[s] = 0.0;
+        run(t, s);
+        // return what could not reach t
+        run(s, t);
+
+        // net flow into t: the backward arcs leaving t hold the flow in
+        for (int a = R.first[t]; a != -1; a = R.next[a])
+            value += (a & 1) == 1 ? R.flow(a >> 1) : -R.flow(a >> 1);
+        cut(s);
+
+        assert check(s, t);
+    }
+
+    /**
+     * Pushes as much of the excess of {@code v} as arc {@code a} to
+     * {@code w} takes.
+     */
+    private void push(int v, int a, int w) {
+        double[] cap = R.cap;
+        double delta = Math.min(excess[v], cap[a]);
+        if (delta == cap[a]) cap[a] = 0.0;
+        else                 cap[a] -= delta;
+        cap[a ^ 1] += delta;
+        excess[v] -= delta;
+        if (excess[w] == 0.0 && label[w] < V && label[w] > 0)
+            activate(w);
+        excess[w] += delta;
+    }
+
+    /**
+     * Discharges active vertices, highest label first, until none can
+     * reach {@code target}. {@code blocked} is never pushed to.
+     */
+    private void run(int target, int blocked) {
+        globalRelabel(target, blocked);
+        long limit = (long) ALPHA * V + R.E();
+        while (maxActive > 0) {
+            int v = activeHead[maxActive];
+            if (v == -1) {
+                maxActive--;
+                continue;
+            }
+            activeHead[maxActive] = nextActive[v];
+            discharge(v);
+            if (work > limit)
+                globalRelabel(target, blocked);
+        }
+    }
+
+    /**
+     * Pushes the excess of {@code v} over admissible arcs, relabelling
+     * {@code v} whenever it runs out of them.
+     */
+    private void discharge(int v) {
+        int[] head = R.head;
+        int[] next = R.next;
+        double[] cap = R.cap;
+        while (true) {
+            for (int a = current[v]; a != -1; a = next[a]) {
+                int w = head[a];
+                if (label[w] == label[v] - 1 && cap[a] > 0) {
+                    push(v, a, w);
+                    if (excess[v] == 0.0) {
+                        current[v] = a;
+                        return;
+                    }
+                }
+            }
+            relabel(v);
+            if (label[v] >= V)
+                return;
+            current[v] = R.first[v];
+        }
+    }
+
+    /**
+     * Lifts {@code v} one above its lowest residual neighbour, or sets
+     * aside the vertices above the gap it leaves.
+     */
+    private void relabel(int v) {
+        work += BETA;
+        int old = label[v];
+        int min = V;
+        for (int a = R.first[v]; a != -1; a = R.next[a]) {
+            work++;
+            if (label[R.head[a]] < min && R.cap[a] > 0)
+                min = label[R.head[a]];
+        }
+        remove(v);
+        if (bucketHead[old] == -1) {
+            // nothing left at old: nothing above it reaches the target
+            for (int k = old + 1; k <= maxLabel; k++) {
+                for (int x = bucketHead[k]; x != -1; x = bucketNext[x])
+                    label[x] = V;
+                bucketHead[k] = -1;
+                activeHead[k] = -1;
+            }
+            maxLabel = old - 1;
+            label[v] = V;
+            return;
+        }
+        if (min + 1 >= V) {
+            label[v] = V;
+            return;
+        }
+        label[v] = min + 1;
+        add(v);
+    }
+
+    /**
+     * Sets every label to the distance to {@code target} through residual
+     * arcs, and rebuilds the lists of every label.
+     */
+    private void globalRelabel(int target, int blocked) {
+        work = 0;
+        for (int v = 0; v < V; v++)
+            label[v] = V;
+        int[] queue = nextActive;
+        int qhead = 0, qtail = 0;
+        label[target] = 0;
+        queue[qtail++] = target;
+        while (qhead < qtail) {
+            int x = queue[qhead++];
+            for (int a = R.first[x]; a != -1; a = R.next[a]) {
+                int y = R.head[a];
+                // a goes x->y, a ^ 1 goes y->x
+                if (label[y] == V && y != blocked && R.cap[a ^ 1] > 0) {
+                    label[y] = label[x] + 1;
+                    queue[qtail++] = y;
+                }
+            }
+        }
+
+        for (int k = 0; k <= V; k++) {
+            activeHead[k] = -1;
+            bucketHead[k] = -1;
+        }
+        maxActive = 0;
+        maxLabel = 0;
+        for (int v = 0; v < V; v++) {
+            current[v] = R.first[v];
+            if (label[v] < V && v != target) {
+                add(v);
+                if (excess[v] > 0)
+                    activate(v);
+            }
+        }
+    }
+
+    private void activate(int v) {
+        int k = label[v];
+        nextActive[v] = activeHead[k];
+        activeHead[k] = v;
+        if (k > maxActive)
+            maxActive = k;
+    }
+
+    private void add(int v) {
+        int k = label[v];
+        bucketPrev[v] = -1;
+        bucketNext[v] = bucketHead[k];
+        if (bucketHead[k] != -1)
+            bucketPrev[bucketHead[k]] = v;
+        bucketHead[k] = v;
+        if (k > maxLabel)
+            maxLabel = k;
+    }
+
+    private void remove(int v) {
+        if (bucketPrev[v] != -1) bucketNext[bucketPrev[v]] = bucketNext[v];
+        else                     bucketHead[label[v]] = bucketNext[v];
+        if (bucketNext[v] != -1)
+            bucketPrev[bucketNext[v]] = bucketPrev[v];
+    }
+
+    /**
+     * Marks the vertices {@code s} reaches through residual arcs.
+     */
+    private void cut(int s) {
+        marked = new boolean[V];
+        int[] queue = new int[V];
+        int qhead = 0, qtail = 0;
+        marked[s] = true;
+        queue[qtail++] = s;
+        while (qhead < qtail) {
+            int x = queue[qhead++];
+            for (int a = R.first[x]; a != -1; a = R.next[a]) {
+                int y = R.head[a];
+                if (!marked[y] && R.cap[a] > 0) {
+                    marked[y] = true;
+                    queue[qtail++] = y;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the value of the maximum flow
+     */
+    public double maxFlow() {
+        return value;
+    }
+
+    /**
+     * @param v the vertex
+     * @return {@code true} if v is on the side of the mincut
+     *         {@code false} otherwise
+     */
+    public boolean inCut(int v) {
+        validateVertex(v);
+        return marked[v];
+    }
+
+    public Iterable<Integer> edgeInCut() {
+        List<Integer> list = new LinkedList<Integer>();
+        for (int v = 0; v < V; v ++) {
+            if (inCut(v)) list.add(v);
+        }
+        return list;
+    }
+
+    /**
+     * @param v the vertex need to check
+     */
+    private void validateVertex(int v) {
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("Vertex " + v + " is not between 0 and " + (V-1));
+    }
+
+    /**
+     * @return {@code true} if the initial flow is conserved at every vertex
+     *         but {@code s} and {@code t}, {@code false} otherwise
+     */
+    private boolean isFeasible(int s, int t) {
+        double[] net = new double[V];
+        for (int i = 0; i < R.E(); i++) {
+            net[R.from(i)] -= R.flow(i);
+            net[R.to(i)] += R.flow(i);
+        }
+        for (int v = 0; v < V; v++) {
+            if (v != s && v != t && Math.abs(net[v]) > FLOATING_POINT_EPSILON) {
+                System.err.println("Net flow out of " + v + " doesn't equal zero");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check optimality conditions of maximum flow
+     */
+    private boolean check(int s, int t) {
+        if (!isFeasible(s, t))
+            return false;
+        if (!inCut(s)) {
+            System.err.println("Source " + s + " is not on source side of min cut");
+            return false;
+        }
+        if (inCut(t)) {
+            System.err.println("Sink " + t + " is on source side of min cut");
+            return false;
+        }
+        double mincutValue = 0.0;
+        for (int i = 0; i < R.E(); i++) {
+            if (inCut(R.from(i)) && !inCut(R.to(i)))
+                mincutValue += R.capacity(i);
+        }
+        if (Math.abs(mincutValue - value) > FLOATING_POINT_EPSILON * Math.max(1.0, value)) {
+            System.err.println("Max flow value = " + value + ", min cut value = " + mincutValue);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * A rows x columns grid with s left of the first column and t right of
+     * the last one.
+     */
+    private static FlowNetwork grid(int rows, int columns, Random random) {
+        int V = rows * columns + 2, s = V - 2, t = V - 1;
+        FlowNetwork G = new FlowNetwork(V);
+        for (int r = 0; r < rows; r++) {
+            G.addEdge(new FlowEdge(s, r * columns, 100));
+            G.addEdge(new FlowEdge(r * columns + columns - 1, t, 100));
+            for (int c = 0; c < columns; c++) {
+                int v = r * columns + c;
+                if (c + 1 < columns)
+                    G.addEdge(new FlowEdge(v, v + 1, 1 + random.nextInt(100)));
+                if (r + 1 < rows) {
+                    G.addEdge(new FlowEdge(v, v + columns, 1 + random.nextInt(50)));
+                    G.addEdge(new FlowEdge(v + columns, v, 1 + random.nextInt(50)));
+                }
+            }
+        }
+        return G;
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        for (MaxFlow.Engine engine : MaxFlow.Engine.values()) {
+            BufferedReader br = new BufferedReader(new FileReader("fordfulkerson.txt"));
+            FlowNetwork G = new FlowNetwork(br);
+            int s = 0, t = G.V() - 1;
+            MaxFlow flow = MaxFlow.of(engine, G, s, t);
+            System.out.println(engine + ": max flow from " + s + " to " + t);
+            for (int v = 0; v < G.V(); v++) {
+                for (FlowEdge e : G.adj(v)) {
+                    if (v == e.from() && e.flow() > 0)
+                        System.out.println("  " + e);
+                }
+            }
+            System.out.print("Min cut: { ");
+            for (int v : flow.edgeInCut())
+                System.out.print(v + ", ");
+            System.out.println(" }");
+            System.out.println("Max flow value: " + flow.maxFlow() + "\n");
+        }
+
+        // side by side on a 100 x 100 grid
+        FlowNetwork G = grid(100, 100, new Random(1));
+        int s = G.V() - 2, t = G.V() - 1;
+        long start = System.currentTimeMillis();
+        MaxFlow ff = MaxFlow.of(MaxFlow.Engine.FORD_FULKERSON, G, s, t);
+        long timeFF = System.currentTimeMillis() - start;
+        G = grid(100, 100, new Random(1));
+        start = System.currentTimeMillis();
+        MaxFlow pr = MaxFlow.of(MaxFlow.Engine.PUSH_RELABEL, G, s, t);
+        long timePR = System.currentTimeMillis() - start;
+        System.out.println("Grid 100 x 100, " + G.E() + " edges");
+        System.out.println("  FordFulkerson " + ff.maxFlow() + " in " + timeFF + " ms");
+        System.out.println("  PushRelabel   " + pr.maxFlow() + " in " + timePR + " ms");
+
+        // 500 000 vertices
+        G = grid(500, 1000, new Random(2));
+        s = G.V() - 2;
+        t = G.V() - 1;
+        start = System.currentTimeMillis();
+        pr = new PushRelabel(G, s, t);
+        System.out.println("Grid 500 x 1000, " + G.E() + " edges");
+        System.out.println("  PushRelabel   " + pr.maxFlow() + " in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+}
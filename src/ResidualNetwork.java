@@ -0,0 +1,293 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A flow network packed into parallel arrays of residual arcs, with no
+ * object per edge.
+ * <p>
+ * Edge {@code i} is the pair of arcs {@code 2i}, from its tail to its
+ * head, and {@code 2i + 1} back, so the reverse of arc {@code a} is
+ * {@code a ^ 1}. {@code head[a]} is the vertex arc {@code a} points to and
+ * {@code cap[a]} its residual capacity: the forward arc holds
+ * {@code capacity - flow} and the backward arc holds the flow. Pushing
+ * {@code d} along arc {@code a} is {@code cap[a] -= d; cap[a ^ 1] += d}.
+ * The arcs leaving {@code v} are a linked list {@code first[v]},
+ * {@code next[first[v]]}, ... ending with -1. {@code cost[a]} is the cost
+ * of a unit of flow along arc {@code a}, so {@code cost[a ^ 1] == -cost[a]}.
+ * <p>
+ * The max-flow engines ({@link Dinic}, {@link PushRelabel}) read and write
+ * the arrays directly. Converting from a {@link FlowNetwork} keeps its
+ * edges in the order of {@code G.adj(v)} over every {@code v}, skipping
+ * self loops, which carry no flow.
+ */
+public class ResidualNetwork {
+
+    private final int V;
+    private int E;
+    // arcs leaving v: first[v], next[first[v]], ..., -1
+    int[] first;
+    int[] next;
+    int[] head;
+    double[] cap;
+    double[] cost;
+    // capacity[i] of edge i, to clamp the flows read back
+    double[] capacity;
+
+    /**
+     * Initializes an empty residual network with {@code V} vertices.
+     * @param V the number of vertices
+     * @throws IllegalArgumentException if {@code V < 0}
+     */
+    public ResidualNetwork(int V) {
+        if (V < 0)
+            throw new IllegalArgumentException("Number of vertices must be > 0");
+        this.V = V;
+        first = new int[V];
+        for (int v = 0; v < V; v++)
+            first[v] = -1;
+        next = new int[16];
+        head = new int[16];
+        cap = new double[16];
+        cost = new double[16];
+        capacity = new double[8];
+    }
+
+    /**
+     * Packs the edges of {@code G} with their current flows.
+     * @param G the flow network
+     */
+    public ResidualNetwork(FlowNetwork G) {
+        this(G.V());
+        resize(2 * Math.max(8, G.E()));
+        for (int v = 0; v < V; v++) {
+            for (FlowEdge e : G.adj(v)) {
+                if (e.from() == v && e.to() != v)
+                    addEdge(v, e.to(), e.capacity(), e.flow(), e.cost());
+            }
+        }
+    }
+
+    /**
+     * @return the number of vertices
+     */
+    public int V() {
+        return V;
+    }
+
+    /**
+     * @return the number of edges, half the number of arcs
+     */
+    public int E() {
+        return E;
+    }
+
+    private void validateVertex(int v) {
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("Vertex " + v + " must be between 0 and " + (V - 1));
+    }
+
+    private void validateEdge(int i) {
+        if (i < 0 || i >= E)
+            throw new IllegalArgumentException("Edge " + i + " must be between 0 and " + (E - 1));
+    }
+
+    /**
+     * Adds an edge from {@code v} to {@code w} with no flow.
+     * @return the index of the edge
+     * @throws IllegalArgumentException if {@code capacity < 0.0}
+     */
+    public int addEdge(int v, int w, double capacity) {
+        return addEdge(v, w, capacity, 0.0);
+    }
+
+    /**
+     * Adds an edge from {@code v} to {@code w} carrying {@code flow}.
+     * @param v        the tail vertex
+     * @param w        the head vertex
+     * @param capacity the capacity of the edge
+     * @param flow     the flow on the edge
+     * @return the index of the edge
+     * @throws IllegalArgumentException if {@code capacity} is negative
+     * @throws IllegalArgumentException unless {@code flow} is between
+     *                                  {@code 0.0} and {@code capacity}.
+     */
+    public int addEdge(int v, int w, double capacity, double flow) {
+        return addEdge(v, w, capacity, flow, 0.0);
+    }
+
+    /**
+     * Adds an edge from {@code v} to {@code w} carrying {@code flow}, at
+     * {@code cost} per unit of flow.
+     * @param v        the tail vertex
+     * @param w        the head vertex
+     * @param capacity the capacity of the edge
+     * @param flow     the flow on the edge
+     * @param cost     the cost of one unit of flow on the edge
+     * @return the index of the edge
+     * @throws IllegalArgumentException if {@code capacity} is negative
+     * @throws IllegalArgumentException unless {@code flow} is between
+     *                                  {@code 0.0} and {@code capacity}.
+     */
+    public int addEdge(int v, int w, double capacity, double flow, double cost) {
+        validateVertex(v);
+        validateVertex(w);
+        if (capacity < 0)
+            throw new IllegalArgumentException("Edge capacity must be > 0");
+        if (flow > capacity || flow < 0)
+            throw new IllegalArgumentException("Flow must be between 0 and " + capacity);
+        if (2 * E + 2 > head.length)
+            resize(2 * head.length);
+        int a = 2 * E;
+        head[a] = w;
+        cap[a] = capacity - flow;
+        this.cost[a] = cost;
+        next[a] = first[v];
+        first[v] = a;
+        head[a + 1] = v;
+        cap[a + 1] = flow;
+        this.cost[a + 1] = -cost;
+        next[a + 1] = first[w];
+        first[w] = a + 1;
+        this.capacity[E] = capacity;
+        return E++;
+    }
+
+    /**
+     * Makes room for {@code n} arcs.
+     */
+    private void resize(int n) {
+        next = Arrays.copyOf(next, n);
+        head = Arrays.copyOf(head, n);
+        cap = Arrays.copyOf(cap, n);
+        cost = Arrays.copyOf(cost, n);
+        capacity = Arrays.copyOf(capacity, n / 2);
+    }
+
+    /**
+     * @param i the edge
+     * @return the tail vertex of edge {@code i}
+     */
+    public int from(int i) {
+        validateEdge(i);
+        return head[2 * i + 1];
+    }
+
+    /**
+     * @param i the edge
+     * @return the head vertex of edge {@code i}
+     */
+    public int to(int i) {
+        validateEdge(i);
+        return head[2 * i];
+    }
+
+    /**
+     * @param i the edge
+     * @return the capacity of edge {@code i}
+     */
+    public double capacity(int i) {
+        validateEdge(i);
+        return capacity[i];
+    }
+
+    /**
+     * @param i the edge
+     * @return the cost of one unit of flow on edge {@code i}
+     */
+    public double cost(int i) {
+        validateEdge(i);
+        return cost[2 * i];
+    }
+
+    /**
+     * @param i the edge
+     * @return the flow on edge {@code i}
+     */
+    public double flow(int i) {
+        validateEdge(i);
+        return Math.max(0.0, Math.min(capacity[i], cap[2 * i + 1]));
+    }
+
+    /**
+     * @param v the tail vertex
+     * @param w the head vertex
+     * @return the index of the last edge added from {@code v} to
+     *         {@code w}, -1 if there is none
+     */
+    public int edge(int v, int w) {
+        validateVertex(v);
+        validateVertex(w);
+        for (int a = first[v]; a != -1; a = next[a]) {
+            if ((a & 1) == 0 && head[a] == w)
+                return a >> 1;
+        }
+        return -1;
+    }
+
+    /**
+     * @return a new flow network of the edges and their flows
+     */
+    public FlowNetwork toFlowNetwork() {
+        FlowNetwork G = new FlowNetwork(V);
+        for (int i = 0; i < E; i++)
+            G.addEdge(new FlowEdge(from(i), to(i), capacity(i), flow(i), cost(i)));
+        return G;
+    }
+
+    /**
+     * Sets the flow of every edge of {@code G} to the flow of the
+     * matching edge here. {@code G} must be the network this one was
+     * packed from, with no edge added since.
+     *
+     * @param G the flow network
+     * @throws IllegalArgumentException if {@code G} has other edges
+     */
+    public void copyFlowsTo(FlowNetwork G) {
+        if (G.V() != V)
+            throw new IllegalArgumentException("Network has " + G.V() + " vertices, not " + V);
+        int i = 0;
+        for (int v = 0; v < V; v++) {
+            for (FlowEdge e : G.adj(v)) {
+                if (e.from() != v || e.to() == v)
+                    continue;
+                if (i == E || from(i) != v || to(i) != e.to())
+                    throw new IllegalArgumentException("Edge " + e + " is not edge " + i);
+                e.setFlow(flow(i++));
+            }
+        }
+        if (i != E)
+            throw new IllegalArgumentException("Network has " + i + " edges, not " + E);
+    }
+
+    /**
+     * Returns a string representation of the residual network.
+     */
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        s.append("R(V = " + V + ", E = " + E + ")\n");
+        for (int v = 0; v < V; v++) {
+            s.append(v + ":  ");
+            for (int a = first[v]; a != -1; a = next[a]) {
+                if ((a & 1) == 0)
+                    s.append(String.format("%d->%d %.2f/%.2f  ", v, head[a], flow(a / 2), capacity[a / 2]));
+            }
+            s.append("\n");
+        }
+        return s.toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        BufferedReader br = new BufferedReader(new FileReader("fordfulkerson.txt"));
+        FlowNetwork G = new FlowNetwork(br);
+        ResidualNetwork R = new ResidualNetwork(G);
+        Dinic dinic = new Dinic(R, 0, R.V() - 1);
+        System.out.println("Max flow value: " + dinic.maxFlow());
+        System.out.println(R);
+        R.copyFlowsTo(G);
+        System.out.println(G);
+        System.out.println(R.toFlowNetwork());
+    }
+}
@@ -0,0 +1,14 @@
+/**
+ * Lower bound on shortest-path lengths, used to guide an A* search.
+ * The estimate must be admissible: never greater than the true length of
+ * a shortest path from {@code v} to {@code u}.
+ */
+public interface SPHeuristic {
+
+    /**
+     * @param v the vertex the search is at
+     * @param u the destination vertex
+     * @return a lower bound on the length of a shortest path from {@code v} to {@code u}
+     */
+    double estimate(int v, int u);
+}
@@ -0,0 +1,311 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Random;
+
+/**
+ * A least recently used cache of single destination shortest-path trees
+ * over one {@link EdgeWeightedDigraph}.
+ * <p>
+ * A tree is stored as a {@code double[]} of distances and an {@code int[]}
+ * of edge ids, 12 bytes per vertex. It is computed with a
+ * {@link DijkstraEngine} if every weight is non-negative, and with
+ * {@link BellmanFordSDP} otherwise. Trees are evicted least recently used
+ * first once the cache holds more than {@code maxTrees} trees or more than
+ * {@code maxBytes} bytes of arrays. Every lookup compares
+ * {@link EdgeWeightedDigraph#version()} with the version the trees were
+ * computed for, and drops them all if an edge has been added since.
+ * <p>
+ * All methods are synchronized; a miss computes the tree while holding the
+ * lock.
+ */
+public class SPTreeCache {
+    // bytes of one cached tree per vertex: a double and an int
+    private static final int BYTES_PER_VERTEX = 12;
+
+    private final EdgeWeightedDigraph G;
+    private final int maxTrees;
+    private final long maxBytes;
+    // destination -> tree, in access order
+    private final LinkedHashMap<Integer, Tree> trees = new LinkedHashMap<>(16, 0.75f, true);
+
+    // state built for graphVersion
+    private int graphVersion = -1;
+    // edges[i] = edge with id i, the edges entering each vertex in adj order
+    private DirectedEdge[] edges;
+    private DijkstraEngine engine;
+    private DijkstraWorkspace ws;
+    // edge ids, only needed for Bellman-Ford trees
+    private IdentityHashMap<DirectedEdge, Integer> ids;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    /**
+     * @param G        the edge-weighted digraph
+     * @param maxTrees the most trees to keep
+     * @param maxBytes the most bytes of cached arrays to keep
+     * @throws IllegalArgumentException if {@code maxTrees < 1} or
+     *         {@code maxBytes} is less than one tree
+     */
+    public SPTreeCache(EdgeWeightedDigraph G, int maxTrees, long maxBytes) {
+        if (maxTrees < 1)
+            throw new IllegalArgumentException("Cache must hold at least one tree");
+        if (maxBytes < (long) BYTES_PER_VERTEX * G.V())
+            throw new IllegalArgumentException(maxBytes + " bytes do not hold one tree of "
+                    + G.V() + " vertices");
+        this.G = G;
+        this.maxTrees = maxTrees;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the shortest-path tree to {@code u}, from the cache if the
+     * digraph has not changed since it was computed.
+     *
+     * @param u the destination vertex
+     * @return the tree
+     * @throws IllegalArgumentException unless {@code 0 <= u < V}
+     * @throws UnsupportedOperationException if the tree would contain a negative cycle
+     */
+    public synchronized Tree get(int u) {
+        validateVertex(u);
+        if (graphVersion != G.version())
+            invalidate();
+        Tree tree = trees.get(u);
+        if (tree != null) {
+            hits++;
+            return tree;
+        }
+
+        misses++;
+        tree = compute(u);
+        trees.put(u, tree);
+        Iterator<Tree> lru = trees.values().iterator();
+        while (trees.size() > maxTrees || bytes() > maxBytes) {
+            lru.next();
+            lru.remove();
+            evictions++;
+        }
+        return tree;
+    }
+
+    private void validateVertex(int v) {
+        int V = G.V();
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("Vertex " + v + " is not between 0 and " + (V - 1));
+    }
+
+    /**
+     * Drops every tree and indexes the edges of the current digraph.
+     */
+    private void invalidate() {
+        if (!trees.isEmpty())
+            invalidations++;
+        trees.clear();
+        graphVersion = G.version();
+
+        edges = new DirectedEdge[G.E()];
+        boolean negative = false;
+        int i = 0;
+        for (int v = 0; v < G.V(); v++) {
+            for (DirectedEdge e : G.adj(v)) {
+                negative |= e.weight() < 0;
+                edges[i++] = e;
+            }
+        }
+        if (negative) {
+            engine = null;
+            ws = null;
+            ids = new IdentityHashMap<>(edges.length);
+            for (i = 0; i < edges.length; i++)
+                ids.put(edges[i], i);
+        }
+        else {
+            engine = new DijkstraEngine(new CSREdgeWeightedDigraph(G));
+            ws = engine.newWorkspace();
+            ids = null;
+        }
+    }
+
+    private Tree compute(int u) {
+        int V = G.V();
+        double[] distFrom = new double[V];
+        int[] edgeFrom = new int[V];
+        if (engine != null) {
+            engine.solve(u, ws);
+            System.arraycopy(ws.distFrom, 0, distFrom, 0, V);
+            System.arraycopy(ws.edgeFrom, 0, edgeFrom, 0, V);
+        }
+        else {
+            BellmanFordSDP bf = new BellmanFordSDP(G, u);
+            for (int v = 0; v < V; v++) {
+                distFrom[v] = bf.distFrom(v);
+                DirectedEdge e = bf.edgeFrom(v);
+                edgeFrom[v] = e == null ? -1 : ids.get(e);
+            }
+        }
+        return new Tree(u, distFrom, edgeFrom, edges);
+    }
+
+    /**
+     * @return the number of trees in the cache
+     */
+    public synchronized int size() {
+        return trees.size();
+    }
+
+    /**
+     * @return the bytes of the arrays of the cached trees
+     */
+    public synchronized long bytes() {
+        return (long) trees.size() * BYTES_PER_VERTEX * G.V();
+    }
+
+    /**
+     * @return the number of lookups answered from the cache
+     */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of lookups that computed a tree
+     */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of trees evicted to respect the bounds
+     */
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the number of times the cached trees were dropped because
+     *         the digraph changed
+     */
+    public synchronized long invalidations() {
+        return invalidations;
+    }
+
+    /**
+     * A shortest-path tree to one destination. It keeps answering for the
+     * version of the digraph it was computed on.
+     */
+    public static class Tree {
+        private final int u;
+        // distFrom[v] = minimum total weight from v to u
+        private final double[] distFrom;
+        // edgeFrom[v] = id of the first edge on the path from v, -1 if none
+        private final int[] edgeFrom;
+        private final DirectedEdge[] edges;
+
+        private Tree(int u, double[] distFrom, int[] edgeFrom, DirectedEdge[] edges) {
+            this.u = u;
+            this.distFrom = distFrom;
+            this.edgeFrom = edgeFrom;
+            this.edges = edges;
+        }
+
+        private void validateVertex(int v) {
+            int V = distFrom.length;
+            if (v < 0 || v >= V)
+                throw new IllegalArgumentException("Vertex " + v + " is not between 0 and " + (V - 1));
+        }
+
+        /**
+         * @return the destination vertex
+         */
+        public int destination() {
+            return u;
+        }
+
+        /**
+         * @param v the source vertex
+         * @return the length of a shortest path from {@code v}, Infinity if none
+         */
+        public double distFrom(int v) {
+            validateVertex(v);
+            return distFrom[v];
+        }
+
+        /**
+         * @param v the source vertex
+         * @return {@code true} if there is a path from {@code v} to the destination
+         */
+        public boolean hasPathFrom(int v) {
+            validateVertex(v);
+            return distFrom[v] < Double.POSITIVE_INFINITY;
+        }
+
+        /**
+         * @param v the source vertex
+         * @return the edges of a shortest path from {@code v}, or {@code null} if none
+         */
+        public LinkedList<DirectedEdge> pathFrom(int v) {
+            if (!hasPathFrom(v))
+                return null;
+            LinkedList<DirectedEdge> path = new LinkedList<>();
+            for (int i = edgeFrom[v]; i != -1; ) {
+                DirectedEdge e = edges[i];
+                path.add(e);
+                i = edgeFrom[e.to()];
+            }
+            return path;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        BufferedReader br = new BufferedReader(new FileReader("dijkstra.txt"));
+        EdgeWeightedDigraph G = new EdgeWeightedDigraph(br);
+        SPTreeCache cache = new SPTreeCache(G, 3, Long.MAX_VALUE);
+        Tree tree = cache.get(6);
+        System.out.printf("0 to 6 (%.2f)  ", tree.distFrom(0));
+        for (DirectedEdge e : tree.pathFrom(0))
+            System.out.print(e + "  ");
+        System.out.println();
+        cache.get(6);
+        G.addEdge(new DirectedEdge(0, 6, 1.00));
+        tree = cache.get(6);
+        System.out.printf("0 to 6 (%.2f)  ", tree.distFrom(0));
+        for (DirectedEdge e : tree.pathFrom(0))
+            System.out.print(e + "  ");
+        System.out.println("  after adding 0->6 1.00");
+
+        br = new BufferedReader(new FileReader("bellman.txt"));
+        EdgeWeightedDigraph N = new EdgeWeightedDigraph(br);
+        Tree bellman = new SPTreeCache(N, 1, Long.MAX_VALUE).get(6);
+        System.out.printf("bellman.txt 0 to 6 (%.2f)  ", bellman.distFrom(0));
+        for (DirectedEdge e : bellman.pathFrom(0))
+            System.out.print(e + "  ");
+        System.out.println("\n");
+
+        // 10000 lookups of 200 destinations, a few of them hot
+        int V = 5000;
+        Random random = new Random(1);
+        G = new EdgeWeightedDigraph(V);
+        for (int i = 0; i < 5 * V; i++)
+            G.addEdge(new DirectedEdge(random.nextInt(V), random.nextInt(V), random.nextDouble()));
+        cache = new SPTreeCache(G, 64, 1L << 20);
+        long start = System.currentTimeMillis();
+        for (int k = 0; k < 10000; k++) {
+            int u = random.nextInt(4) != 0 ? random.nextInt(16) : random.nextInt(200);
+            cache.get(u);
+        }
+        long time = System.currentTimeMillis() - start;
+        System.out.println("V = " + V + ", 10000 lookups in " + time + " ms");
+        System.out.println("  hits " + cache.hits() + ", misses " + cache.misses()
+                + ", evictions " + cache.evictions() + ", " + cache.size() + " trees in "
+                + cache.bytes() / 1024 + " KB");
+    }
+}
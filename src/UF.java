@@ -0,0 +1,85 @@
+/**
+ * A disjoint-set (union-find) data type over the elements {@code 0} to
+ * {@code n - 1}, with union by rank and path compression (by halving),
+ * so that {@code find} and {@code union} take near constant amortized
+ * time.
+ */
+public class UF {
+
+    private final int[] parent;  // parent[i] = parent of i
+    private final byte[] rank;   // rank[i] = rank of subtree rooted at i (never more than 31)
+    private int count;           // number of sets
+
+    /**
+     * Initializes {@code n} sets, each holding one element.
+     * @param n the number of elements
+     * @throws IllegalArgumentException if {@code n < 0}
+     */
+    public UF(int n) {
+        if (n < 0)
+            throw new IllegalArgumentException("Number of elements must be >= 0");
+        count = n;
+        parent = new int[n];
+        rank = new byte[n];
+        for (int i = 0; i < n; i++)
+            parent[i] = i;
+    }
+
+    /**
+     * Returns the canonical element of the set containing {@code p}.
+     * @param p an element
+     * @return the canonical element of the set containing {@code p}
+     * @throws IllegalArgumentException unless {@code 0 <= p < n}
+     */
+    public int find(int p) {
+        validate(p);
+        while (p != parent[p]) {
+            parent[p] = parent[parent[p]];
+            p = parent[p];
+        }
+        return p;
+    }
+
+    /**
+     * @return the number of sets
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * @param p one element
+     * @param q the other element
+     * @return {@code true} if {@code p} and {@code q} are in the same set
+     */
+    public boolean connected(int p, int q) {
+        return find(p) == find(q);
+    }
+
+    /**
+     * Merges the set containing {@code p} with the set containing
+     * {@code q}.
+     * @param p one element
+     * @param q the other element
+     * @return the canonical element of the merged set
+     * @throws IllegalArgumentException unless both are between 0 and n - 1
+     */
+    public int union(int p, int q) {
+        int rootP = find(p);
+        int rootQ = find(q);
+        if (rootP == rootQ) return rootP;
+
+        count--;
+        if      (rank[rootP] < rank[rootQ]) { parent[rootP] = rootQ; return rootQ; }
+        else if (rank[rootP] > rank[rootQ]) { parent[rootQ] = rootP; return rootP; }
+        parent[rootQ] = rootP;
+        rank[rootP]++;
+        return rootP;
+    }
+
+    private void validate(int p) {
+        int n = parent.length;
+        if (p < 0 || p >= n)
+            throw new IllegalArgumentException("Index " + p + " is not between 0 and " + (n-1));
+    }
+}